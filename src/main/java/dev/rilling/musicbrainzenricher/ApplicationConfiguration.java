@@ -2,11 +2,13 @@ package dev.rilling.musicbrainzenricher;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 @Configuration
+@EnableScheduling
 public class ApplicationConfiguration {
 
 	@Bean("enrichmentExecutor")
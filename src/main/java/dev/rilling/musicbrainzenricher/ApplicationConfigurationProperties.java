@@ -1,11 +1,17 @@
 package dev.rilling.musicbrainzenricher;
 
+import dev.rilling.musicbrainzenricher.core.WorkQueueMaintenanceService.MaintenanceMode;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "musicbrainz-enricher")
 @Validated
@@ -42,6 +48,71 @@ public class ApplicationConfigurationProperties {
 	 */
 	private boolean dryRun;
 
+	/**
+	 * Musicbrainz API rate limit options.
+	 */
+	private MusicbrainzRateLimit musicbrainzRateLimit;
+
+	/**
+	 * Options for grouping tag submissions.
+	 */
+	private TagSubmission tagSubmission;
+
+	/**
+	 * Options for asynchronous edit submission.
+	 */
+	private EditSubmission editSubmission;
+
+	/**
+	 * Options for remembering genres found for relation targets during a run.
+	 */
+	private GenreMemo genreMemo;
+
+	/**
+	 * Options for reusing genres found for relation targets in earlier runs.
+	 */
+	private EnrichmentResult enrichmentResult;
+
+	/**
+	 * Auto-query mode options.
+	 */
+	private AutoQuery autoQuery;
+
+	/**
+	 * Options for enriching already checked entities again.
+	 */
+	private ReEnrichment reEnrichment;
+
+	/**
+	 * History storage options.
+	 */
+	private History history;
+
+	/**
+	 * Local musicbrainz database options.
+	 */
+	private Database database;
+
+	/**
+	 * Scraping options.
+	 */
+	private Scraping scraping;
+
+	/**
+	 * Discogs response cache options.
+	 */
+	private DiscogsCache discogsCache;
+
+	/**
+	 * Options for combining spotify lookups into batch requests.
+	 */
+	private SpotifyBatch spotifyBatch;
+
+	/**
+	 * Wikidata options.
+	 */
+	private Wikidata wikidata;
+
 	/**
 	 * Musicbrainz credentials.
 	 * You should probably pass these as command line flags.
@@ -103,6 +174,110 @@ public class ApplicationConfigurationProperties {
 		this.dryRun = dryRun;
 	}
 
+	public MusicbrainzRateLimit getMusicbrainzRateLimit() {
+		return musicbrainzRateLimit;
+	}
+
+	public void setMusicbrainzRateLimit(MusicbrainzRateLimit musicbrainzRateLimit) {
+		this.musicbrainzRateLimit = musicbrainzRateLimit;
+	}
+
+	public TagSubmission getTagSubmission() {
+		return tagSubmission;
+	}
+
+	public void setTagSubmission(TagSubmission tagSubmission) {
+		this.tagSubmission = tagSubmission;
+	}
+
+	public EditSubmission getEditSubmission() {
+		return editSubmission;
+	}
+
+	public void setEditSubmission(EditSubmission editSubmission) {
+		this.editSubmission = editSubmission;
+	}
+
+	public GenreMemo getGenreMemo() {
+		return genreMemo;
+	}
+
+	public void setGenreMemo(GenreMemo genreMemo) {
+		this.genreMemo = genreMemo;
+	}
+
+	public EnrichmentResult getEnrichmentResult() {
+		return enrichmentResult;
+	}
+
+	public void setEnrichmentResult(EnrichmentResult enrichmentResult) {
+		this.enrichmentResult = enrichmentResult;
+	}
+
+	public AutoQuery getAutoQuery() {
+		return autoQuery;
+	}
+
+	public void setAutoQuery(AutoQuery autoQuery) {
+		this.autoQuery = autoQuery;
+	}
+
+	public ReEnrichment getReEnrichment() {
+		return reEnrichment;
+	}
+
+	public void setReEnrichment(ReEnrichment reEnrichment) {
+		this.reEnrichment = reEnrichment;
+	}
+
+	public History getHistory() {
+		return history;
+	}
+
+	public void setHistory(History history) {
+		this.history = history;
+	}
+
+	public Database getDatabase() {
+		return database;
+	}
+
+	public void setDatabase(Database database) {
+		this.database = database;
+	}
+
+	public Scraping getScraping() {
+		return scraping;
+	}
+
+	public void setScraping(Scraping scraping) {
+		this.scraping = scraping;
+	}
+
+	public DiscogsCache getDiscogsCache() {
+		return discogsCache;
+	}
+
+	public void setDiscogsCache(DiscogsCache discogsCache) {
+		this.discogsCache = discogsCache;
+	}
+
+	public SpotifyBatch getSpotifyBatch() {
+		return spotifyBatch;
+	}
+
+	public void setSpotifyBatch(SpotifyBatch spotifyBatch) {
+		this.spotifyBatch = spotifyBatch;
+	}
+
+	public Wikidata getWikidata() {
+		return wikidata;
+	}
+
+	public void setWikidata(Wikidata wikidata) {
+		this.wikidata = wikidata;
+	}
+
 	public MusicbrainzCredentials getMusicbrainz() {
 		return musicbrainz;
 	}
@@ -127,6 +302,171 @@ public class ApplicationConfigurationProperties {
 		this.spotify = spotify;
 	}
 
+	/**
+	 * @param defaultProfile Profile for hosts without their own profile.
+	 * @param hostProfiles   Profiles by host name (without port).
+	 */
+	public record MusicbrainzRateLimit(Profile defaultProfile, Map<String, Profile> hostProfiles) {
+
+		/**
+		 * The rate adapts between the minimum and maximum depending on if the host throttles requests.
+		 *
+		 * @param unlimited   If requests should not be limited at all, e.g. for local mirrors.
+		 * @param initialRate Requests per minute to start with.
+		 * @param minRate     Minimum requests per minute.
+		 * @param maxRate     Maximum requests per minute.
+		 */
+		public record Profile(boolean unlimited, long initialRate, long minRate, long maxRate) {
+		}
+	}
+
+	/**
+	 * @param maxLinger           Maximum time an edit waits to be submitted together with others.
+	 * @param lingerCheckInterval Interval in which edits waiting for longer than {@code maxLinger} are submitted.
+	 */
+	public record TagSubmission(Duration maxLinger, Duration lingerCheckInterval) {
+	}
+
+	/**
+	 * @param queueCapacity  Maximum number of pending submissions, further edits block until one was submitted.
+	 * @param maxAttempts    Maximum number of attempts per submission.
+	 * @param initialBackoff Time to wait before retrying a failed submission, doubled for every further retry.
+	 */
+	public record EditSubmission(@Min(1) int queueCapacity, @Min(1) int maxAttempts, Duration initialBackoff) {
+	}
+
+	/**
+	 * @param maxSize Maximum number of remembered relation targets, least recently used ones are removed beyond it.
+	 */
+	public record GenreMemo(@Min(0) int maxSize) {
+	}
+
+	/**
+	 * @param ttl      How long genres found for a relation target are reused before it is looked up again.
+	 * @param emptyTtl How long to remember that a relation target has no genres.
+	 * @param errorTtl How long to remember that a relation target could not be looked up.
+	 * @param hostTtl  Overrides of {@code ttl} by host. Keys also match subdomains of the host.
+	 */
+	public record EnrichmentResult(Duration ttl, Duration emptyTtl, Duration errorTtl, Map<String, Duration> hostTtl) {
+	}
+
+	/**
+	 * @param concurrency Number of entities that are enriched at the same time.
+	 * @param delta       If only entities whose URL relationships changed since the last completed run should be
+	 *                    enriched.
+	 * @param leasing     Options for processing the work queue with multiple nodes.
+	 */
+	public record AutoQuery(@Min(1) int concurrency, boolean delta, Leasing leasing) {
+
+		/**
+		 * @param enabled           If the work queue should be leased in chunks, so that multiple nodes can share it.
+		 * @param nodeId            ID of this node, must be unique between nodes sharing a database.
+		 * @param chunkSize         Number of row IDs per chunk.
+		 * @param leaseDuration     How long a chunk stays leased without heartbeat before other nodes can claim it.
+		 * @param heartbeatInterval Interval in which leases are extended, should be well below the lease duration.
+		 */
+		public record Leasing(boolean enabled,
+							  @NotBlank String nodeId,
+							  @Min(1) long chunkSize,
+							  Duration leaseDuration,
+							  Duration heartbeatInterval) {
+		}
+	}
+
+	/**
+	 * @param enabled       If entities that were checked long ago should be enriched again after the work queue is done.
+	 * @param staleAfter    Time after which checked entities are enriched again.
+	 * @param defaultBudget Number of relations per run that may be enriched again for hosts without own budget.
+	 * @param hostBudget    Number of relations per run that may be enriched again by host. Keys also match subdomains
+	 *                      of the host.
+	 */
+	public record ReEnrichment(boolean enabled,
+							   Duration staleAfter,
+							   @Min(0) long defaultBudget,
+							   Map<String, Long> hostBudget) {
+	}
+
+	/**
+	 * @param flushSize     Number of pending history entries after which they are written.
+	 * @param flushInterval Maximum time pending history entries are kept before they are written.
+	 */
+	public record History(@Min(1) int flushSize, Duration flushInterval) {
+	}
+
+	/**
+	 * @param maxReplicationAge    If the local database was replicated longer ago than this, entities are looked up
+	 *                             using the musicbrainz API instead.
+	 * @param workQueueMaintenance How work queues are updated after the local database was replicated.
+	 */
+	public record Database(Duration maxReplicationAge, MaintenanceMode workQueueMaintenance) {
+	}
+
+	/**
+	 * @param cache          Options for the on-disk cache of scraped responses.
+	 * @param rateLimit      Options for the rate limit of each host.
+	 * @param circuitBreaker Options for stopping requests to hosts that keep failing.
+	 */
+	public record Scraping(Cache cache, RateLimit rateLimit, CircuitBreaker circuitBreaker) {
+
+		/**
+		 * @param enabled   If responses should be cached.
+		 * @param directory Directory to store cached responses in.
+		 * @param maxSize   Maximum total size of cached responses, least recently used ones are removed beyond it.
+		 * @param ttl       How long cached responses are used before they are revalidated.
+		 * @param hostTtl   Overrides of {@code ttl} by host. Keys also match subdomains of the host.
+		 */
+		public record Cache(boolean enabled,
+							@NotBlank String directory,
+							DataSize maxSize,
+							Duration ttl,
+							Map<String, Duration> hostTtl) {
+		}
+
+		/**
+		 * The rate adapts between the minimum and maximum depending on if the host throttles requests.
+		 *
+		 * @param initialRate Requests per minute to start with.
+		 * @param minRate     Minimum requests per minute.
+		 * @param maxRate     Maximum requests per minute.
+		 */
+		public record RateLimit(@Min(1) long initialRate, @Min(1) long minRate, @Min(1) long maxRate) {
+		}
+
+		/**
+		 * @param failureThreshold Number of consecutive failed requests to a host after which requests to it are
+		 *                         stopped.
+		 * @param openDuration     How long requests to the host are stopped before a single request is tried again.
+		 */
+		public record CircuitBreaker(@Min(1) int failureThreshold, Duration openDuration) {
+		}
+	}
+
+	/**
+	 * @param ttl         How long discogs responses are used before they are requested again.
+	 * @param negativeTtl How long to remember that a discogs resource does not exist.
+	 */
+	public record DiscogsCache(Duration ttl, Duration negativeTtl) {
+	}
+
+	/**
+	 * @param maxWait Maximum time a lookup waits for others to be combined with.
+	 */
+	public record SpotifyBatch(Duration maxWait) {
+	}
+
+	/**
+	 * @param negativeCacheTtl How long to remember that a wikidata genre has no musicbrainz genre.
+	 * @param batch            Options for combining lookups into batch requests.
+	 */
+	public record Wikidata(Duration negativeCacheTtl, Batch batch) {
+
+		/**
+		 * @param maxWait Maximum time a lookup waits for others to be combined with.
+		 */
+		public record Batch(Duration maxWait) {
+		}
+	}
+
 	public record MusicbrainzCredentials(@NotBlank String username, @NotBlank String password) {
 	}
 
@@ -25,7 +25,9 @@ public class MusicbrainzEnricherApplication implements CommandLineRunner {
 	}
 
 	public static void main(String[] args) {
-		SpringApplication.run(MusicbrainzEnricherApplication.class, args);
+		// Scheduled tasks would keep the application running, so we exit explicitly once done.
+		// Closing the context also flushes pending history entries and edits.
+		System.exit(SpringApplication.exit(SpringApplication.run(MusicbrainzEnricherApplication.class, args)));
 	}
 
 	@Override
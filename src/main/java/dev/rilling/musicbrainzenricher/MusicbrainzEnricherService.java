@@ -1,16 +1,29 @@
 package dev.rilling.musicbrainzenricher;
 
-import dev.rilling.musicbrainzenricher.core.DataType;
-import dev.rilling.musicbrainzenricher.core.DataTypeAware;
-import dev.rilling.musicbrainzenricher.core.WorkQueueRepository;
+import dev.rilling.musicbrainzenricher.core.*;
+import dev.rilling.musicbrainzenricher.core.history.EnrichmentOutcome;
 import dev.rilling.musicbrainzenricher.core.history.HistoryService;
 import dev.rilling.musicbrainzenricher.enrichment.AbstractEnrichmentService;
+import dev.rilling.musicbrainzenricher.enrichment.Enricher;
+import dev.rilling.musicbrainzenricher.enrichment.RequestBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 @Service
 public class MusicbrainzEnricherService {
@@ -19,37 +32,220 @@ public class MusicbrainzEnricherService {
 
 	private static final int AUTO_QUERY_CHUNK_SIZE = 100;
 
+	private final int autoQueryConcurrency;
+	private final boolean deltaMode;
+	private final boolean reEnrichmentEnabled;
+	private final Duration reEnrichmentStaleAfter;
+	private final Map<String, Long> reEnrichmentHostBudgets;
+	private final long reEnrichmentDefaultBudget;
+
 	private final ApplicationContext applicationContext;
 	private final HistoryService historyService;
+	private final WorkQueueCursorRepository workQueueCursorRepository;
+	private final WorkLeaseService workLeaseService;
+	private final WorkQueueMaintenanceService workQueueMaintenanceService;
+	private final WorkQueueMaintenanceRepository workQueueMaintenanceRepository;
+	private final WorkQueueWatermarkRepository workQueueWatermarkRepository;
+	private final ExecutorService enrichmentExecutor;
 
-	MusicbrainzEnricherService(ApplicationContext applicationContext, HistoryService historyService) {
+	MusicbrainzEnricherService(Environment environment,
+							   ApplicationContext applicationContext,
+							   HistoryService historyService,
+							   WorkQueueCursorRepository workQueueCursorRepository,
+							   WorkLeaseService workLeaseService,
+							   WorkQueueMaintenanceService workQueueMaintenanceService,
+							   WorkQueueMaintenanceRepository workQueueMaintenanceRepository,
+							   WorkQueueWatermarkRepository workQueueWatermarkRepository,
+							   @Qualifier("enrichmentExecutor") ExecutorService enrichmentExecutor) {
 		this.applicationContext = applicationContext;
 		this.historyService = historyService;
+		this.workQueueCursorRepository = workQueueCursorRepository;
+		this.workLeaseService = workLeaseService;
+		this.workQueueMaintenanceService = workQueueMaintenanceService;
+		this.workQueueMaintenanceRepository = workQueueMaintenanceRepository;
+		this.workQueueWatermarkRepository = workQueueWatermarkRepository;
+		this.enrichmentExecutor = enrichmentExecutor;
+
+		autoQueryConcurrency = environment.getRequiredProperty("musicbrainz-enricher.auto-query.concurrency", Integer.class);
+		if (autoQueryConcurrency < 1) {
+			throw new IllegalArgumentException("Auto-query concurrency must be at least 1.");
+		}
+		deltaMode = environment.getRequiredProperty("musicbrainz-enricher.auto-query.delta", Boolean.class);
+		reEnrichmentEnabled = environment.getRequiredProperty("musicbrainz-enricher.re-enrichment.enabled", Boolean.class);
+		reEnrichmentStaleAfter = environment.getRequiredProperty("musicbrainz-enricher.re-enrichment.stale-after",
+			Duration.class);
+		reEnrichmentHostBudgets = Binder.get(environment)
+			.bind("musicbrainz-enricher.re-enrichment.host-budget", Bindable.mapOf(String.class, Long.class))
+			.orElse(Map.of());
+		reEnrichmentDefaultBudget = environment.getRequiredProperty("musicbrainz-enricher.re-enrichment.default-budget",
+			Long.class);
 	}
 
+	/**
+	 * Enriches all entities of the work queue, starting with the entities that are most likely to be enriched.
+	 * <p>
+	 * Up to {@code musicbrainz-enricher.auto-query.concurrency} entities are enriched at the same time, so that
+	 * while one entity waits for e.g. discogs, the next one can already be looked up from musicbrainz.
+	 * Once that many entities are in flight, querying further entities blocks until one of them completes.
+	 * <p>
+	 * If {@code musicbrainz-enricher.auto-query.leasing.enabled} is set, the work queue is leased chunk by chunk so
+	 * that multiple nodes can process it at the same time.
+	 * <p>
+	 * If {@code musicbrainz-enricher.auto-query.delta} is set, only entities whose URL relationships changed since
+	 * the previous completed run are enriched instead, including ones that were already checked. Changes are tracked
+	 * by the replication state of the local database. If there was no completed run yet, or if the local database was
+	 * never replicated, the whole work queue is processed instead.
+	 * <p>
+	 * If {@code musicbrainz-enricher.re-enrichment.enabled} is set, entities that were last checked longer ago than
+	 * {@code musicbrainz-enricher.re-enrichment.stale-after} are enriched again afterward, least recently checked
+	 * first, until the request budget of every host is used up.
+	 *
+	 * @param dataType Data type to process.
+	 */
 	public void runInAutoQueryMode(DataType dataType) {
 		final WorkQueueRepository workQueueRepository = findBeanForDataType(dataType, WorkQueueRepository.class);
 		final AbstractEnrichmentService<?, ?> enrichmentService = findBeanForDataType(dataType, AbstractEnrichmentService.class);
 
-		long count = workQueueRepository.countWorkQueue();
-		while (count > 0) {
-			LOGGER.info("{} auto-query entities remaining.", count);
-			for (UUID mbid : workQueueRepository.queryWorkQueue(AUTO_QUERY_CHUNK_SIZE)) {
-				executeEnrichment(dataType, mbid, enrichmentService);
+		final Instant startedAt = workQueueWatermarkRepository.findDatabaseTime();
+		// Changes are only known to be complete up to the replication state, not up to the current time.
+		final Optional<Instant> changesCompleteUntil = deltaMode ?
+			workQueueMaintenanceRepository.findCurrentReplicationState().map(ReplicationState::completeUntil) :
+			Optional.empty();
+		final Optional<Instant> watermark = changesCompleteUntil.isPresent() ?
+			workQueueWatermarkRepository.findWatermark(dataType) :
+			Optional.empty();
+		final WorkQueue workQueue;
+		if (watermark.isPresent()) {
+			workQueue = new ChangedEntityWorkQueue(workQueueRepository,
+				watermark.get(),
+				changesCompleteUntil.get(),
+				AUTO_QUERY_CHUNK_SIZE,
+				enrichmentService::prefetch);
+		} else {
+			workQueueMaintenanceService.maintain(workQueueRepository);
+			scoreWorkQueue(workQueueRepository);
+			workQueue = createWorkQueue(workQueueRepository, enrichmentService);
+		}
+		final boolean completed = processWorkQueue(dataType, workQueue, enrichmentService, RequestBudget.unlimited());
+
+		if (completed && changesCompleteUntil.isPresent()) {
+			LOGGER.info("Next delta run will process {} entities changed after {}.", dataType, changesCompleteUntil.get());
+			workQueueWatermarkRepository.saveWatermark(dataType, changesCompleteUntil.get());
+		} else if (deltaMode && changesCompleteUntil.isEmpty()) {
+			LOGGER.warn("Local database was never replicated, delta runs will process the whole {} work queue.",
+				dataType);
+		}
+
+		if (completed && reEnrichmentEnabled) {
+			RequestBudget budget = new RequestBudget(reEnrichmentHostBudgets, reEnrichmentDefaultBudget);
+			WorkQueue staleEntityWorkQueue = new StaleEntityWorkQueue(workQueueRepository,
+				startedAt.minus(reEnrichmentStaleAfter),
+				AUTO_QUERY_CHUNK_SIZE,
+				enrichmentService::prefetch);
+			processWorkQueue(dataType, staleEntityWorkQueue, enrichmentService, budget);
+			if (budget.isExhausted()) {
+				LOGGER.info("Request budget for re-enriching {} entities is used up.", dataType);
 			}
-			count = workQueueRepository.countWorkQueue();
 		}
 	}
 
+	/**
+	 * Enriches the entities of the work queue until it or the budget is exhausted.
+	 *
+	 * @return If the work queue was processed without being interrupted.
+	 */
+	private boolean processWorkQueue(DataType dataType,
+									 WorkQueue workQueue,
+									 AbstractEnrichmentService<?, ?> enrichmentService,
+									 RequestBudget budget) {
+		final Semaphore inFlight = new Semaphore(autoQueryConcurrency);
+		try {
+			while (!budget.isExhausted() && workQueue.hasNext()) {
+				UUID mbid = workQueue.next();
+				inFlight.acquire();
+				try {
+					enrichmentExecutor.execute(() -> {
+						try {
+							executeEnrichment(dataType, mbid, enrichmentService, budget);
+						} catch (RuntimeException e) {
+							LOGGER.error("Enrichment for {} '{}' failed.", dataType, mbid, e);
+						} finally {
+							workQueue.completed(mbid);
+							inFlight.release();
+						}
+					});
+				} catch (RuntimeException e) {
+					inFlight.release();
+					throw e;
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted, not starting further enrichments.", e);
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			awaitInFlight(inFlight);
+			// Otherwise, entities of abandoned pages would be kept and used as outdated snapshots in a later run.
+			enrichmentService.discardPrefetched();
+			workQueue.close();
+		}
+	}
+
+	private void scoreWorkQueue(WorkQueueRepository workQueueRepository) {
+		DataType dataType = workQueueRepository.getDataType();
+		Set<RelationPattern> supportedRelations = applicationContext.getBeansOfType(Enricher.class)
+			.values()
+			.stream()
+			.filter(enricher -> enricher.getDataType() == dataType)
+			.flatMap(enricher -> enricher.getSupportedRelations().stream())
+			.collect(Collectors.toUnmodifiableSet());
+		LOGGER.info("Scoring new {} work queue entities.", dataType);
+		int scored = workQueueRepository.scoreEntities(supportedRelations);
+		LOGGER.info("Scored {} {} work queue entities.", scored, dataType);
+	}
+
+	private WorkQueue createWorkQueue(WorkQueueRepository workQueueRepository,
+									  AbstractEnrichmentService<?, ?> enrichmentService) {
+		if (workLeaseService.isEnabled()) {
+			return new LeasingWorkQueue(workQueueRepository,
+				workLeaseService,
+				AUTO_QUERY_CHUNK_SIZE,
+				historyService::persistPending,
+				enrichmentService::prefetch);
+		}
+		return new WorkQueueCursor(workQueueRepository,
+			workQueueCursorRepository,
+			AUTO_QUERY_CHUNK_SIZE,
+			enrichmentService::prefetch);
+	}
+
 	public void runInSingleMode(DataType dataType, UUID mbid) {
-		executeEnrichment(dataType, mbid, findBeanForDataType(dataType, AbstractEnrichmentService.class));
+		executeEnrichment(dataType,
+			mbid,
+			findBeanForDataType(dataType, AbstractEnrichmentService.class),
+			RequestBudget.unlimited());
 	}
 
-	private void executeEnrichment(DataType dataType, UUID mbid, AbstractEnrichmentService<?, ?> enrichmentService) {
+	private void executeEnrichment(DataType dataType,
+								   UUID mbid,
+								   AbstractEnrichmentService<?, ?> enrichmentService,
+								   RequestBudget budget) {
 		LOGGER.info("Starting enrichment for {} '{}'.", dataType, mbid);
-		enrichmentService.executeEnrichment(mbid);
-		LOGGER.info("Completed enrichment for {} '{}'.", dataType, mbid);
-		historyService.markAsChecked(dataType, mbid);
+		EnrichmentOutcome outcome = enrichmentService.executeEnrichment(mbid, budget);
+		LOGGER.info("Completed enrichment for {} '{}' with outcome {}.", dataType, mbid, outcome);
+		// Skipped entities keep their previous check time, so they are picked up again with the next budget.
+		if (outcome != EnrichmentOutcome.SKIPPED) {
+			historyService.markAsChecked(dataType, mbid, outcome);
+		}
+	}
+
+	private void awaitInFlight(Semaphore inFlight) {
+		LOGGER.debug("Waiting for in-flight enrichments to complete.");
+		// Even when interrupted we wait for running enrichments, so their results are submitted before shutdown.
+		inFlight.acquireUninterruptibly(autoQueryConcurrency);
+		inFlight.release(autoQueryConcurrency);
+		LOGGER.debug("All in-flight enrichments completed.");
 	}
 
 
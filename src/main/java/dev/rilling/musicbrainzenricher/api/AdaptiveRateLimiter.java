@@ -0,0 +1,187 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import jakarta.annotation.Nullable;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Rate limiter that adapts its rate to the responses of the server using AIMD (additive increase, multiplicative
+ * decrease).
+ * <p>
+ * Every successful request increases the rate slightly, so that it grows by about one request per period after a
+ * full period of successful requests. When the server signals that it is overloaded, the rate is halved and no requests are
+ * made until the time the server asked us to wait for has passed. Throttled responses to requests that were started
+ * before the last decrease do not decrease the rate again, as they were sent with the old rate.
+ * <p>
+ * Requests are spread evenly over the period instead of allowing bursts of the whole rate, as a burst right after
+ * startup or a pause could trigger the server's limits even though the average rate is fine.
+ */
+@ThreadSafe
+public class AdaptiveRateLimiter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveRateLimiter.class);
+
+	private static final double DECREASE_FACTOR = 0.5;
+
+	private final String name;
+	private final long minRate;
+	private final long maxRate;
+	private final Duration period;
+
+	private final Bucket bucket;
+
+	@GuardedBy("this")
+	private double rate;
+
+	@GuardedBy("this")
+	private long lastDecreaseNanos;
+
+	@GuardedBy("this")
+	private long blockedUntilNanos;
+
+	/**
+	 * @param name        Name used for logging.
+	 * @param initialRate Initial number of requests per period.
+	 * @param minRate     Minimum number of requests per period.
+	 * @param maxRate     Maximum number of requests per period.
+	 * @param period      Period the rates refer to.
+	 */
+	public AdaptiveRateLimiter(String name, long initialRate, long minRate, long maxRate, Duration period) {
+		if (minRate < 1 || minRate > initialRate || initialRate > maxRate) {
+			throw new IllegalArgumentException("Rates must satisfy 1 <= min <= initial <= max.");
+		}
+		this.name = name;
+		this.minRate = minRate;
+		this.maxRate = maxRate;
+		this.period = period;
+
+		rate = initialRate;
+		long now = System.nanoTime();
+		lastDecreaseNanos = now;
+		blockedUntilNanos = now;
+		bucket = Bucket.builder()
+			.addLimit(createBandwidth(initialRate))
+			.build()
+			.toListenable(new LoggingBucketListener(name));
+	}
+
+	/**
+	 * Blocks until a request may be made.
+	 *
+	 * @return Token to pass to {@link #onThrottled(long, Duration)} if the request is throttled.
+	 * @throws InterruptedException If interrupted while waiting, in which case no request may be made.
+	 */
+	public long acquire() throws InterruptedException {
+		long waitNanos;
+		synchronized (this) {
+			waitNanos = blockedUntilNanos - System.nanoTime();
+		}
+		if (waitNanos > 0) {
+			LOGGER.debug("Waiting {} ms before next request to '{}'.", waitNanos / 1_000_000, name);
+			Thread.sleep(Duration.ofNanos(waitNanos));
+		}
+		bucket.asBlocking().consume(1);
+		return System.nanoTime();
+	}
+
+	/**
+	 * Signals that a request was successful.
+	 */
+	public synchronized void onSuccess() {
+		if (rate >= maxRate) {
+			return;
+		}
+		long previousRate = (long) rate;
+		rate = Math.min(rate + 1.0 / rate, maxRate);
+		if ((long) rate != previousRate) {
+			LOGGER.trace("Increasing rate of '{}' to {} request(s) per {}.", name, (long) rate, period);
+			updateBucket();
+		}
+	}
+
+	/**
+	 * Signals that the server rejected a request because it is overloaded.
+	 *
+	 * @param acquiredAt Value returned by {@link #acquire()} for the request.
+	 * @param retryAfter Time to wait before the next request, if the server specified one.
+	 */
+	public synchronized void onThrottled(long acquiredAt, @Nullable Duration retryAfter) {
+		if (retryAfter != null) {
+			pause(retryAfter);
+		}
+		if (acquiredAt - lastDecreaseNanos < 0) {
+			return;
+		}
+		lastDecreaseNanos = System.nanoTime();
+		rate = Math.max(rate * DECREASE_FACTOR, minRate);
+		LOGGER.info("Decreasing rate of '{}' to {} request(s) per {}.", name, (long) rate, period);
+		updateBucket();
+	}
+
+	/**
+	 * Stops requests for the given duration without changing the rate, e.g. because the server signaled that the
+	 * current rate limit window is exhausted.
+	 *
+	 * @param duration Duration to not make requests for.
+	 */
+	public synchronized void pause(Duration duration) {
+		blockedUntilNanos = Math.max(blockedUntilNanos, System.nanoTime() + duration.toNanos());
+	}
+
+	synchronized long getRate() {
+		return (long) rate;
+	}
+
+	@GuardedBy("this")
+	private void updateBucket() {
+		BucketConfiguration configuration = BucketConfiguration.builder()
+			.addLimit(createBandwidth((long) rate))
+			.build();
+		bucket.replaceConfiguration(configuration, TokensInheritanceStrategy.PROPORTIONALLY);
+	}
+
+	private Bandwidth createBandwidth(long rate) {
+		// Capacity of a single token, which is refilled after each fraction of the period.
+		return Bandwidth.classic(1, Refill.intervally(1, period.dividedBy(rate)));
+	}
+
+	/**
+	 * Parses the value of a {@code Retry-After} header.
+	 *
+	 * @param value Header value, either a number of seconds or an HTTP date.
+	 * @return Time to wait, or empty if the value is missing or invalid.
+	 */
+	public static Optional<Duration> parseRetryAfter(@Nullable String value) {
+		if (value == null || value.isBlank()) {
+			return Optional.empty();
+		}
+		String trimmedValue = value.trim();
+		try {
+			return Optional.of(Duration.ofSeconds(Math.max(Long.parseLong(trimmedValue), 0)));
+		} catch (NumberFormatException e) {
+			// Not a number of seconds, try parsing it as a date.
+		}
+		try {
+			Instant retryAt = ZonedDateTime.parse(trimmedValue, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+			Duration duration = Duration.between(Instant.now(), retryAt);
+			return Optional.of(duration.isNegative() ? Duration.ZERO : duration);
+		} catch (DateTimeParseException e) {
+			LOGGER.debug("Could not parse Retry-After value '{}'.", value);
+			return Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops requests to a server that keeps failing, so callers fail fast instead of waiting for timeouts.
+ * <p>
+ * The breaker starts {@link State#CLOSED}. After a number of consecutive failures it is {@link State#OPEN} and rejects
+ * all requests. Once the open duration has passed it is {@link State#HALF_OPEN} and lets a single trial request
+ * through: if it succeeds, the breaker is closed again, otherwise it is opened for another open duration.
+ */
+@ThreadSafe
+public class CircuitBreaker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	private final String name;
+	private final int failureThreshold;
+	private final Duration openDuration;
+
+	@GuardedBy("this")
+	private State state = State.CLOSED;
+
+	@GuardedBy("this")
+	private int consecutiveFailures = 0;
+
+	@GuardedBy("this")
+	private long openUntilNanos;
+
+	@GuardedBy("this")
+	private boolean trialInFlight = false;
+
+	private final AtomicLong openings = new AtomicLong(0);
+	private final AtomicLong rejectedCalls = new AtomicLong(0);
+
+	/**
+	 * @param name             Name used for logging.
+	 * @param failureThreshold Number of consecutive failures after which requests are rejected.
+	 * @param openDuration     Time requests are rejected for before a trial request is let through.
+	 */
+	public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("Failure threshold must be at least 1.");
+		}
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration;
+	}
+
+	/**
+	 * Checks if a request may be made. If it returns true, the outcome of the request must be reported using
+	 * {@link #onSuccess()} or {@link #onFailure()}, or {@link #release()} if the request was not made after all.
+	 *
+	 * @return If the request may be made.
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+			LOGGER.debug("Letting trial request to '{}' through.", name);
+			state = State.HALF_OPEN;
+		}
+		if (state == State.CLOSED) {
+			return true;
+		}
+		if (state == State.HALF_OPEN && !trialInFlight) {
+			trialInFlight = true;
+			return true;
+		}
+		rejectedCalls.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Signals that a request was successful.
+	 */
+	public synchronized void onSuccess() {
+		if (state != State.CLOSED) {
+			LOGGER.info("Closing circuit breaker of '{}'.", name);
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		trialInFlight = false;
+	}
+
+	/**
+	 * Signals that a request was not made after all, e.g. because waiting for it was interrupted.
+	 * If it was the trial request, the next request is let through as trial request instead.
+	 */
+	public synchronized void release() {
+		trialInFlight = false;
+	}
+
+	/**
+	 * Signals that a request failed, e.g. because the server could not be reached.
+	 */
+	public synchronized void onFailure() {
+		trialInFlight = false;
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+			LOGGER.warn("Opening circuit breaker of '{}' for {} after {} consecutive failure(s).",
+				name,
+				openDuration,
+				consecutiveFailures);
+			state = State.OPEN;
+			openUntilNanos = System.nanoTime() + openDuration.toNanos();
+			openings.incrementAndGet();
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public long getOpenings() {
+		return openings.get();
+	}
+
+	public long getRejectedCalls() {
+		return rejectedCalls.get();
+	}
+
+	public enum State {
+		/**
+		 * Requests are made.
+		 */
+		CLOSED,
+		/**
+		 * Requests are rejected.
+		 */
+		OPEN,
+		/**
+		 * A single trial request is made to check if the server recovered.
+		 */
+		HALF_OPEN
+	}
+}
@@ -0,0 +1,41 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Elements extracted from a page, see {@link ScrapingService#extract(String, java.util.Collection, java.util.Collection)}.
+ *
+ * @param root     Root element of the page without its children, e.g. to read the language of the page.
+ * @param elements Elements matching each selector in document order, with their children. Selectors that only look
+ *                 for their first match have at most one element. Selectors without a match are missing.
+ */
+public record ExtractedPage(Element root, Map<Evaluator, List<Element>> elements) {
+
+	public ExtractedPage {
+		elements = elements.entrySet()
+			.stream()
+			.collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue())));
+	}
+
+	/**
+	 * @param selector One of the selectors the page was extracted with.
+	 * @return First element matching the selector, or empty if none did.
+	 */
+	public Optional<Element> get(Evaluator selector) {
+		return getAll(selector).stream().findFirst();
+	}
+
+	/**
+	 * @param selector One of the selectors the page was extracted with.
+	 * @return Elements matching the selector, which is only the first one unless all matches were extracted.
+	 */
+	public List<Element> getAll(Evaluator selector) {
+		return elements.getOrDefault(selector, List.of());
+	}
+}
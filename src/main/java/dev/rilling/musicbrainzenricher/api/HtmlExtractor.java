@@ -0,0 +1,87 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+import org.jsoup.select.Evaluator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Extracts elements from HTML without building the whole document.
+ * <p>
+ * The HTML is parsed with a {@link StreamParser}, which emits elements once they are complete. Elements that are
+ * neither matched by a selector nor inside an element that may still be matched are removed right away. Selectors
+ * either match only their first element or all of them. If there are only selectors of the first kind, parsing stops
+ * as soon as every one of them matched.
+ * <p>
+ * As elements are matched before the rest of the document is parsed, selectors may only depend on the element itself
+ * and its ancestors, e.g. {@code .genre > div > a}, but not on siblings or descendants like {@code :has(...)}.
+ */
+final class HtmlExtractor {
+
+	private HtmlExtractor() {
+	}
+
+	/**
+	 * @param reader              HTML to parse.
+	 * @param baseUri             URI of the HTML, used to resolve relative URLs.
+	 * @param firstMatchSelectors Selectors to find the first match of.
+	 * @param everyMatchSelectors Selectors to find all matches of.
+	 * @return Extracted elements.
+	 * @throws IOException If reading fails.
+	 */
+	static ExtractedPage extract(Reader reader,
+								 String baseUri,
+								 Collection<Evaluator> firstMatchSelectors,
+								 Collection<Evaluator> everyMatchSelectors) throws IOException {
+		List<Evaluator> pendingSelectors = new ArrayList<>(firstMatchSelectors.size() + everyMatchSelectors.size());
+		pendingSelectors.addAll(everyMatchSelectors);
+		pendingSelectors.addAll(firstMatchSelectors);
+		Set<Evaluator> everyMatchSelectorSet = Set.copyOf(everyMatchSelectors);
+		Map<Evaluator, List<Element>> elements = new HashMap<>(pendingSelectors.size());
+		// The parser needs to mark positions in the reader.
+		Reader markableReader = reader.markSupported() ? reader : new BufferedReader(reader);
+		try (StreamParser streamParser = new StreamParser(Parser.htmlParser()).parse(markableReader, baseUri)) {
+			Document document = streamParser.document();
+			Iterator<Element> iterator = streamParser.iterator();
+			while (!pendingSelectors.isEmpty() && iterator.hasNext()) {
+				Element element = iterator.next();
+				for (Iterator<Evaluator> selectorIterator = pendingSelectors.iterator(); selectorIterator.hasNext(); ) {
+					Evaluator selector = selectorIterator.next();
+					if (selector.matches(document, element)) {
+						elements.computeIfAbsent(selector, ignored -> new ArrayList<>(1)).add(element);
+						if (!everyMatchSelectorSet.contains(selector)) {
+							selectorIterator.remove();
+						}
+					}
+				}
+				// The root element is kept for its attributes. Matched elements keep their children when they are
+				// removed from the document.
+				if (element.parent() != document && !isInsidePendingMatch(document, element, pendingSelectors)) {
+					element.remove();
+				}
+			}
+			Element root = document.firstElementChild();
+			return new ExtractedPage(root != null ? root.shallowClone() : new Element("html"), elements);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static boolean isInsidePendingMatch(Document document, Element element, List<Evaluator> pendingSelectors) {
+		for (Element parent = element.parent(); parent != null; parent = parent.parent()) {
+			for (Evaluator selector : pendingSelectors) {
+				if (selector.matches(document, parent)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,21 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import java.io.Serial;
+
+/**
+ * Thrown if a resource could not be looked up, e.g. because the server could not be reached. Resources that do not
+ * exist are not a failure, lookups return empty results for them instead.
+ */
+public class LookupFailedException extends RuntimeException {
+
+	@Serial
+	private static final long serialVersionUID = 4062873490120378311L;
+
+	public LookupFailedException(String message) {
+		super(message);
+	}
+
+	public LookupFailedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,132 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Combines lookups of single keys from concurrent callers into batch lookups.
+ * <p>
+ * The first caller of a batch waits until either the batch is full or the maximum wait time has passed, and then
+ * loads the whole batch. All other callers of the batch wait for their result.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+@ThreadSafe
+public class RequestCoalescer<K, V> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestCoalescer.class);
+
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final Function<Set<K>, Map<K, V>> batchLoader;
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition batchClosed = lock.newCondition();
+
+	@GuardedBy("lock")
+	private Map<K, CompletableFuture<Optional<V>>> currentBatch = new LinkedHashMap<>();
+
+	/**
+	 * @param maxBatchSize Maximum number of keys to load at once.
+	 * @param maxWait      Maximum time to wait for a batch to fill.
+	 * @param batchLoader  Loads the values of the given keys. Keys without value should be missing from the result,
+	 *                     failures should be thrown and are rethrown to all callers of the batch.
+	 */
+	public RequestCoalescer(int maxBatchSize, Duration maxWait, Function<Set<K>, Map<K, V>> batchLoader) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Max batch size must be at least 1.");
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.batchLoader = batchLoader;
+	}
+
+	/**
+	 * Loads a single value as part of a batch. Blocks until the batch is loaded.
+	 *
+	 * @param key Key to load.
+	 * @return Value, or empty if the key has none.
+	 */
+	public Optional<V> load(K key) {
+		CompletableFuture<Optional<V>> future;
+		Map<K, CompletableFuture<Optional<V>>> ownBatch = null;
+
+		lock.lock();
+		try {
+			future = currentBatch.get(key);
+			if (future == null) {
+				future = new CompletableFuture<>();
+				Map<K, CompletableFuture<Optional<V>>> batch = currentBatch;
+				boolean leader = batch.isEmpty();
+				batch.put(key, future);
+				if (batch.size() >= maxBatchSize) {
+					// Start a new batch for subsequent callers and notify the leader of this batch.
+					currentBatch = new LinkedHashMap<>();
+					batchClosed.signalAll();
+				}
+				// Only the leader loads the batch.
+				if (leader) {
+					ownBatch = awaitBatch(batch);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (ownBatch != null) {
+			loadBatch(ownBatch);
+		}
+
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw e;
+		}
+	}
+
+	@GuardedBy("lock")
+	private Map<K, CompletableFuture<Optional<V>>> awaitBatch(Map<K, CompletableFuture<Optional<V>>> batch) {
+		long remainingNanos = maxWaitNanos;
+		while (currentBatch == batch && remainingNanos > 0) {
+			try {
+				remainingNanos = batchClosed.awaitNanos(remainingNanos);
+			} catch (InterruptedException e) {
+				// Other callers depend on this batch being loaded, so we stop waiting but still load it.
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		if (currentBatch == batch) {
+			currentBatch = new LinkedHashMap<>();
+		}
+		return batch;
+	}
+
+	private void loadBatch(Map<K, CompletableFuture<Optional<V>>> batch) {
+		LOGGER.trace("Loading batch of size {}.", batch.size());
+		try {
+			Map<K, V> values = batchLoader.apply(Set.copyOf(batch.keySet()));
+			batch.forEach((key, future) -> future.complete(Optional.ofNullable(values.get(key))));
+		} catch (RuntimeException e) {
+			batch.values().forEach(future -> future.completeExceptionally(e));
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded on-disk cache of scraped responses.
+ * <p>
+ * Entries are stored by the SHA-256 hash of their URL, with the raw response body and a metadata file containing
+ * validators for conditional requests. Once the total size exceeds the configured maximum,
+ * the least recently used entries are removed.
+ */
+@Component
+@ThreadSafe
+class ScrapingCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScrapingCache.class);
+
+	private static final String BODY_SUFFIX = ".body";
+	private static final String METADATA_SUFFIX = ".properties";
+	// Evict down to this ratio of the maximum size to not evict on every single write.
+	private static final double EVICTION_TARGET_RATIO = 0.9;
+
+	private final boolean enabled;
+	private final Path directory;
+	private final long maxSize;
+	private final Duration defaultTtl;
+	private final Map<String, Duration> hostTtls;
+
+	private final AtomicLong size = new AtomicLong(0);
+	private final Lock evictionLock = new ReentrantLock();
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong revalidations = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	ScrapingCache(Environment environment) {
+		enabled = environment.getRequiredProperty("musicbrainz-enricher.scraping.cache.enabled", Boolean.class);
+		directory = Path.of(environment.getRequiredProperty("musicbrainz-enricher.scraping.cache.directory"));
+		maxSize = environment.getRequiredProperty("musicbrainz-enricher.scraping.cache.max-size", DataSize.class).toBytes();
+		defaultTtl = environment.getRequiredProperty("musicbrainz-enricher.scraping.cache.ttl", Duration.class);
+		hostTtls = Binder.get(environment)
+			.bind("musicbrainz-enricher.scraping.cache.host-ttl", Bindable.mapOf(String.class, Duration.class))
+			.orElse(Map.of());
+
+		if (enabled) {
+			initialize();
+		}
+	}
+
+	/**
+	 * Looks up a cached response.
+	 *
+	 * @param url URL of the response.
+	 * @return Cached response, which may or may not be fresh. Empty if none is cached.
+	 */
+	Optional<CacheEntry> get(String url) {
+		if (!enabled) {
+			return Optional.empty();
+		}
+		String key = createKey(url);
+		Path metadataPath = directory.resolve(key + METADATA_SUFFIX);
+		Path bodyPath = directory.resolve(key + BODY_SUFFIX);
+		try {
+			Properties metadata = new Properties();
+			try (InputStream inputStream = Files.newInputStream(metadataPath)) {
+				metadata.load(inputStream);
+			}
+			// Hash collisions are not realistic, but this also protects against unexpected files.
+			if (!url.equals(metadata.getProperty("url"))) {
+				return Optional.empty();
+			}
+			byte[] body = Files.readAllBytes(bodyPath);
+			// Modification time is used to find the least recently used entries for eviction.
+			Files.setLastModifiedTime(bodyPath, FileTime.from(Instant.now()));
+			return Optional.of(new CacheEntry(body,
+				metadata.getProperty("charset"),
+				metadata.getProperty("etag"),
+				metadata.getProperty("last-modified"),
+				Instant.ofEpochMilli(Long.parseLong(metadata.getProperty("fetched-at")))));
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not read cache entry for '{}'.", url, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Stores a response, replacing any existing entry.
+	 *
+	 * @param url   URL of the response.
+	 * @param entry Response to store.
+	 */
+	void put(String url, CacheEntry entry) {
+		if (!enabled) {
+			return;
+		}
+		String key = createKey(url);
+		Path metadataPath = directory.resolve(key + METADATA_SUFFIX);
+		Path bodyPath = directory.resolve(key + BODY_SUFFIX);
+
+		Properties metadata = new Properties();
+		metadata.setProperty("url", url);
+		metadata.setProperty("fetched-at", String.valueOf(entry.fetchedAt().toEpochMilli()));
+		if (entry.charset() != null) {
+			metadata.setProperty("charset", entry.charset());
+		}
+		if (entry.etag() != null) {
+			metadata.setProperty("etag", entry.etag());
+		}
+		if (entry.lastModified() != null) {
+			metadata.setProperty("last-modified", entry.lastModified());
+		}
+
+		try {
+			long previousSize = Files.exists(bodyPath) ? Files.size(bodyPath) : 0;
+			// The body is written before the metadata, so that readers never see metadata without a matching body.
+			writeAtomically(bodyPath, outputStream -> outputStream.write(entry.body()));
+			writeAtomically(metadataPath, outputStream -> metadata.store(outputStream, null));
+			size.addAndGet(entry.body().length - previousSize);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write cache entry for '{}'.", url, e);
+			return;
+		}
+
+		if (size.get() > maxSize) {
+			evict();
+		}
+	}
+
+	/**
+	 * Checks if an entry can be used without revalidation.
+	 *
+	 * @param url   URL of the response.
+	 * @param entry Entry to check.
+	 * @return if the entry is fresh.
+	 */
+	boolean isFresh(String url, CacheEntry entry) {
+		return entry.fetchedAt().plus(getTtl(url)).isAfter(Instant.now());
+	}
+
+	void recordHit() {
+		hits.incrementAndGet();
+	}
+
+	void recordRevalidation() {
+		revalidations.incrementAndGet();
+	}
+
+	void recordMiss() {
+		misses.incrementAndGet();
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getRevalidations() {
+		return revalidations.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		if (enabled) {
+			LOGGER.info("Scraping cache statistics: {} hit(s), {} revalidation(s), {} miss(es).",
+				getHits(),
+				getRevalidations(),
+				getMisses());
+		}
+	}
+
+	private Duration getTtl(String url) {
+		String host;
+		try {
+			host = new URI(url).getHost();
+		} catch (Exception e) {
+			return defaultTtl;
+		}
+		if (host == null) {
+			return defaultTtl;
+		}
+		// Keys may either be the exact host or a parent domain, e.g. "bandcamp.com" for "foo.bandcamp.com".
+		for (Map.Entry<String, Duration> hostTtl : hostTtls.entrySet()) {
+			if (host.equals(hostTtl.getKey()) || host.endsWith("." + hostTtl.getKey())) {
+				return hostTtl.getValue();
+			}
+		}
+		return defaultTtl;
+	}
+
+	private void initialize() {
+		try {
+			Files.createDirectories(directory);
+			try (Stream<Path> files = Files.list(directory)) {
+				size.set(files.filter(path -> path.toString().endsWith(BODY_SUFFIX)).mapToLong(ScrapingCache::getSize).sum());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not initialize scraping cache in '%s'.".formatted(directory), e);
+		}
+		LOGGER.debug("Initialized scraping cache in '{}' with a size of {} bytes.", directory, size.get());
+	}
+
+	private void evict() {
+		// If another thread is already evicting, there is no need for us to do it too.
+		if (!evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			List<Path> bodyPaths;
+			try (Stream<Path> files = Files.list(directory)) {
+				bodyPaths = files.filter(path -> path.toString().endsWith(BODY_SUFFIX))
+					.sorted(Comparator.comparing(ScrapingCache::getLastModifiedTime))
+					.toList();
+			}
+			long targetSize = (long) (maxSize * EVICTION_TARGET_RATIO);
+			int evicted = 0;
+			for (Path bodyPath : bodyPaths) {
+				if (size.get() <= targetSize) {
+					break;
+				}
+				String fileName = bodyPath.getFileName().toString();
+				String key = fileName.substring(0, fileName.length() - BODY_SUFFIX.length());
+				long entrySize = getSize(bodyPath);
+				Files.deleteIfExists(directory.resolve(key + METADATA_SUFFIX));
+				Files.deleteIfExists(bodyPath);
+				size.addAndGet(-entrySize);
+				evicted++;
+			}
+			LOGGER.debug("Evicted {} scraping cache entries.", evicted);
+		} catch (IOException e) {
+			LOGGER.warn("Could not evict scraping cache entries.", e);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void writeAtomically(Path target, IoConsumer<OutputStream> writer) throws IOException {
+		Path temporaryPath = Files.createTempFile(directory, null, ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(temporaryPath)) {
+				writer.accept(outputStream);
+			}
+			Files.move(temporaryPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	private static String createKey(String url) {
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(messageDigest.digest(url.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported.", e);
+		}
+	}
+
+	private static long getSize(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static FileTime getLastModifiedTime(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (IOException e) {
+			return FileTime.from(Instant.EPOCH);
+		}
+	}
+
+	@FunctionalInterface
+	private interface IoConsumer<T> {
+		void accept(T t) throws IOException;
+	}
+
+	/**
+	 * @param body         Raw response body.
+	 * @param charset      Charset of the response, if known.
+	 * @param etag         {@code ETag} header of the response, if present.
+	 * @param lastModified {@code Last-Modified} header of the response, if present.
+	 * @param fetchedAt    When the response was last fetched or revalidated.
+	 */
+	record CacheEntry(byte[] body,
+					  @Nullable String charset,
+					  @Nullable String etag,
+					  @Nullable String lastModified,
+					  Instant fetchedAt) {
+
+		CacheEntry withFetchedAt(Instant newFetchedAt) {
+			return new CacheEntry(body, charset, etag, lastModified, newFetchedAt);
+		}
+	}
+}
@@ -1,33 +1,278 @@
 package dev.rilling.musicbrainzenricher.api;
 
+import dev.rilling.musicbrainzenricher.api.ScrapingCache.CacheEntry;
+import jakarta.annotation.PreDestroy;
 import net.jcip.annotations.ThreadSafe;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.jsoup.select.Evaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads HTML pages and extracts elements from them, without building the whole document (see {@link HtmlExtractor}).
+ * <p>
+ * Responses are cached on disk. Fresh cache entries are used as-is, stale ones are revalidated using their
+ * {@code ETag}/{@code Last-Modified} validators if the server provided any.
+ * <p>
+ * Requests are rate limited per host with an {@link AdaptiveRateLimiter}, measured in requests per minute. Throttled
+ * requests are retried after the rate limiter allows it. Concurrent requests for the same URL are made only once.
+ * <p>
+ * Each host also has a {@link CircuitBreaker}. After
+ * {@code musicbrainz-enricher.scraping.circuit-breaker.failure-threshold} consecutive requests that could not connect,
+ * were blocked, got a server error or stayed throttled, requests to the host fail immediately for
+ * {@code musicbrainz-enricher.scraping.circuit-breaker.open-duration}. Stale cached responses are used as-is while the
+ * breaker is open.
+ */
 @Service
 @ThreadSafe
 public class ScrapingService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ScrapingService.class);
 
+	// Not part of HttpURLConnection.
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final int MAX_ATTEMPTS = 3;
 
-	public Optional<Document> load(String url) {
+	private final long initialRate;
+	private final long minRate;
+	private final long maxRate;
+	private final int failureThreshold;
+	private final Duration openDuration;
+
+	private final ScrapingCache scrapingCache;
+
+	private final Map<String, AdaptiveRateLimiter> rateLimitersByHost = new ConcurrentHashMap<>();
+	private final Map<String, CircuitBreaker> circuitBreakersByHost = new ConcurrentHashMap<>();
+	private final SingleFlight<String, Optional<CacheEntry>> singleFlight = new SingleFlight<>();
+
+	ScrapingService(Environment environment, ScrapingCache scrapingCache) {
+		this.scrapingCache = scrapingCache;
+
+		initialRate = environment.getRequiredProperty("musicbrainz-enricher.scraping.rate-limit.initial-rate",
+			Long.class);
+		minRate = environment.getRequiredProperty("musicbrainz-enricher.scraping.rate-limit.min-rate", Long.class);
+		maxRate = environment.getRequiredProperty("musicbrainz-enricher.scraping.rate-limit.max-rate", Long.class);
+		failureThreshold = environment.getRequiredProperty(
+			"musicbrainz-enricher.scraping.circuit-breaker.failure-threshold",
+			Integer.class);
+		openDuration = environment.getRequiredProperty("musicbrainz-enricher.scraping.circuit-breaker.open-duration",
+			Duration.class);
+	}
+
+	/**
+	 * Loads a page and extracts the elements matching the selectors. Unless all matches of a selector are needed,
+	 * parsing stops once every selector matched.
+	 * Selectors may only depend on the element and its ancestors.
+	 *
+	 * @param url                 URL of the page.
+	 * @param firstMatchSelectors Selectors to extract the first matching element of.
+	 * @param everyMatchSelectors Selectors to extract all matching elements of.
+	 * @return Extracted elements, or empty if the page does not exist.
+	 * @throws LookupFailedException If the page could not be loaded.
+	 */
+	public Optional<ExtractedPage> extract(String url,
+										   Collection<Evaluator> firstMatchSelectors,
+										   Collection<Evaluator> everyMatchSelectors) {
+		// Each caller parses the response on its own, as elements are not thread-safe.
+		return singleFlight.execute(url, () -> fetch(url))
+			.map(cacheEntry -> extract(url, cacheEntry, firstMatchSelectors, everyMatchSelectors));
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		LOGGER.info("Scraping statistics: {} request(s) shared with concurrent requests for the same URL.",
+			singleFlight.getSharedCalls());
+		circuitBreakersByHost.forEach((host, circuitBreaker) -> {
+			if (circuitBreaker.getOpenings() > 0) {
+				LOGGER.info("Circuit breaker statistics of '{}': opened {} time(s), rejected {} request(s), now {}.",
+					host,
+					circuitBreaker.getOpenings(),
+					circuitBreaker.getRejectedCalls(),
+					circuitBreaker.getState());
+			}
+		});
+	}
+
+	private Optional<CacheEntry> fetch(String url) {
+		Optional<CacheEntry> cacheEntry = scrapingCache.get(url);
+		if (cacheEntry.isPresent() && scrapingCache.isFresh(url, cacheEntry.get())) {
+			LOGGER.trace("Using cached response for '{}'.", url);
+			scrapingCache.recordHit();
+			return cacheEntry;
+		}
+
+		String host = getHost(url);
+		CircuitBreaker circuitBreaker = circuitBreakersByHost.computeIfAbsent(host,
+			key -> new CircuitBreaker("scraping-" + key, failureThreshold, openDuration));
+		if (!circuitBreaker.tryAcquire()) {
+			LOGGER.debug("Skipping request to '{}', circuit breaker of the host is open.", url);
+			if (cacheEntry.isEmpty()) {
+				throw new LookupFailedException("Could not load '%s', circuit breaker of the host is open.".formatted(
+					url));
+			}
+			return cacheEntry;
+		}
+		FetchResult result = FetchResult.failed();
 		try {
-			Document document = Jsoup.connect(url).get();
-			return Optional.of(document);
-		} catch (IOException e) {
-			if (LOGGER.isDebugEnabled()) {
-				LOGGER.warn("Could not connect to '{}'.", url, e);
-			} else {
-				LOGGER.warn("Could not connect to '{}'.", url);
+			result = fetchRemote(url, host, cacheEntry);
+		} finally {
+			switch (result.outcome()) {
+				case RESPONDED -> circuitBreaker.onSuccess();
+				case HOST_FAILED -> circuitBreaker.onFailure();
+				// No request was made, so nothing is known about the host.
+				case INTERRUPTED -> circuitBreaker.release();
 			}
-			return Optional.empty();
 		}
+		if (result.outcome() != FetchOutcome.RESPONDED) {
+			throw new LookupFailedException("Could not load '%s'.".formatted(url));
+		}
+		return result.cacheEntry();
+	}
+
+	private FetchResult fetchRemote(String url, String host, Optional<CacheEntry> cacheEntry) {
+		AdaptiveRateLimiter rateLimiter = rateLimitersByHost.computeIfAbsent(host,
+			key -> new AdaptiveRateLimiter("scraping-" + key, initialRate, minRate, maxRate, Duration.ofMinutes(1)));
+		for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+			long acquiredAt;
+			try {
+				acquiredAt = rateLimiter.acquire();
+			} catch (InterruptedException e) {
+				LOGGER.warn("Interrupted while waiting to request '{}'.", url);
+				Thread.currentThread().interrupt();
+				return new FetchResult(Optional.empty(), FetchOutcome.INTERRUPTED);
+			}
+			Connection.Response response;
+			try {
+				Connection connection = Jsoup.connect(url).ignoreHttpErrors(true);
+				cacheEntry.ifPresent(staleEntry -> {
+					if (staleEntry.etag() != null) {
+						connection.header("If-None-Match", staleEntry.etag());
+					}
+					if (staleEntry.lastModified() != null) {
+						connection.header("If-Modified-Since", staleEntry.lastModified());
+					}
+				});
+				response = connection.execute();
+			} catch (IOException e) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.warn("Could not connect to '{}'.", url, e);
+				} else {
+					LOGGER.warn("Could not connect to '{}'.", url);
+				}
+				return FetchResult.failed();
+			}
+
+			int statusCode = response.statusCode();
+			if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+				LOGGER.debug("Throttled by '{}' (attempt {} of {}).", url, attempt, MAX_ATTEMPTS);
+				rateLimiter.onThrottled(acquiredAt,
+					AdaptiveRateLimiter.parseRetryAfter(response.header("Retry-After")).orElse(null));
+				continue;
+			}
+			rateLimiter.onSuccess();
+
+			if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cacheEntry.isPresent()) {
+				LOGGER.trace("Cached response for '{}' is still valid.", url);
+				scrapingCache.recordRevalidation();
+				CacheEntry revalidatedEntry = cacheEntry.get().withFetchedAt(Instant.now());
+				scrapingCache.put(url, revalidatedEntry);
+				return new FetchResult(Optional.of(revalidatedEntry), FetchOutcome.RESPONDED);
+			}
+			if (statusCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+				LOGGER.warn("Could not load '{}', got status {}.", url, statusCode);
+				// Missing pages are no reason to stop requesting other pages of the host, blocks and server errors are.
+				return new FetchResult(Optional.empty(),
+					statusCode == HttpURLConnection.HTTP_FORBIDDEN || statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR ?
+						FetchOutcome.HOST_FAILED :
+						FetchOutcome.RESPONDED);
+			}
+
+			scrapingCache.recordMiss();
+			CacheEntry newEntry = new CacheEntry(response.bodyAsBytes(),
+				response.charset(),
+				response.header("ETag"),
+				response.header("Last-Modified"),
+				Instant.now());
+			scrapingCache.put(url, newEntry);
+			return new FetchResult(Optional.of(newEntry), FetchOutcome.RESPONDED);
+		}
+		LOGGER.warn("Could not load '{}', still throttled after {} attempts.", url, MAX_ATTEMPTS);
+		return FetchResult.failed();
+	}
+
+	private static String getHost(String url) {
+		try {
+			return Objects.requireNonNullElse(new URI(url).getHost(), "");
+		} catch (URISyntaxException e) {
+			return "";
+		}
+	}
+
+	private ExtractedPage extract(String url,
+								  CacheEntry cacheEntry,
+								  Collection<Evaluator> firstMatchSelectors,
+								  Collection<Evaluator> everyMatchSelectors) {
+		Charset charset;
+		try {
+			// Unlike when parsing whole documents, the charset is not detected from the content.
+			charset = cacheEntry.charset() != null ? Charset.forName(cacheEntry.charset()) : StandardCharsets.UTF_8;
+		} catch (IllegalArgumentException e) {
+			LOGGER.debug("Unsupported charset '{}' for '{}', falling back to UTF-8.", cacheEntry.charset(), url);
+			charset = StandardCharsets.UTF_8;
+		}
+		try {
+			return HtmlExtractor.extract(new InputStreamReader(new ByteArrayInputStream(cacheEntry.body()), charset),
+				url,
+				firstMatchSelectors,
+				everyMatchSelectors);
+		} catch (IOException e) {
+			LOGGER.warn("Could not parse response of '{}'.", url, e);
+			throw new LookupFailedException("Could not parse response of '%s'.".formatted(url), e);
+		}
+	}
+
+	/**
+	 * @param cacheEntry Response, or empty if it could not be loaded or the page does not exist.
+	 * @param outcome    Outcome of the request, reported to the circuit breaker of the host.
+	 */
+	private record FetchResult(Optional<CacheEntry> cacheEntry, FetchOutcome outcome) {
+
+		static FetchResult failed() {
+			return new FetchResult(Optional.empty(), FetchOutcome.HOST_FAILED);
+		}
+	}
+
+	private enum FetchOutcome {
+		/**
+		 * The host responded properly, even if e.g. the page does not exist.
+		 */
+		RESPONDED,
+		/**
+		 * The host could not be reached or did not respond properly.
+		 */
+		HOST_FAILED,
+		/**
+		 * Waiting to make the request was interrupted, so no request was made.
+		 */
+		INTERRUPTED
 	}
 }
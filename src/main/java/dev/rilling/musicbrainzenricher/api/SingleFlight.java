@@ -0,0 +1,85 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent calls for the same key.
+ * <p>
+ * The first caller for a key executes the call, callers for the same key arriving while it is in flight wait for
+ * and share its result, including exceptions. Results are not kept once the call completed, later callers execute
+ * the call again.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+@ThreadSafe
+public class SingleFlight<K, V> {
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong executedCalls = new AtomicLong(0);
+	private final AtomicLong sharedCalls = new AtomicLong(0);
+
+	/**
+	 * Executes the call, or waits for the result of the call for the same key that is already in flight.
+	 *
+	 * @param key  Key identifying the call.
+	 * @param call Call to execute.
+	 * @return Result of the call.
+	 */
+	public V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> ownFuture = new CompletableFuture<>();
+		CompletableFuture<V> existingFuture = inFlight.putIfAbsent(key, ownFuture);
+		if (existingFuture != null) {
+			sharedCalls.incrementAndGet();
+			return join(existingFuture);
+		}
+
+		executedCalls.incrementAndGet();
+		try {
+			V value = call.get();
+			ownFuture.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			ownFuture.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, ownFuture);
+		}
+	}
+
+	/**
+	 * @return Number of calls that were executed.
+	 */
+	public long getExecutedCalls() {
+		return executedCalls.get();
+	}
+
+	/**
+	 * @return Number of calls that were avoided by waiting for a call in flight.
+	 */
+	public long getSharedCalls() {
+		return sharedCalls.get();
+	}
+
+	private static <V> V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw e;
+		}
+	}
+}
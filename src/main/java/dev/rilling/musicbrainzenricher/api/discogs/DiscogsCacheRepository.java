@@ -0,0 +1,49 @@
+package dev.rilling.musicbrainzenricher.api.discogs;
+
+import jakarta.annotation.Nullable;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Stores discogs responses, so they do not have to be requested again.
+ */
+@Repository
+@ThreadSafe
+class DiscogsCacheRepository {
+
+	private final JdbcClient jdbcClient;
+
+	DiscogsCacheRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	public Optional<CacheEntry> find(String resourceType, String discogsId) {
+		return jdbcClient.sql("""
+				SELECT payload, fetched_at FROM musicbrainz_enricher.discogs_cache_entry
+				WHERE resource_type = ? AND discogs_id = ?
+				""")
+			.param(resourceType)
+			.param(discogsId)
+			.query((rs, rowNum) -> new CacheEntry(rs.getString("payload"), rs.getTimestamp("fetched_at").toInstant()))
+			.optional();
+	}
+
+	public void save(String resourceType, String discogsId, @Nullable String payload) {
+		jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.discogs_cache_entry (resource_type, discogs_id, payload)
+			VALUES (?, ?, CAST(? AS jsonb))
+			ON CONFLICT (resource_type, discogs_id) DO UPDATE SET payload = excluded.payload, fetched_at = now()
+			""").param(resourceType).param(discogsId).param(payload).update();
+	}
+
+	/**
+	 * @param payload   JSON of the resource, or null if it was not found.
+	 * @param fetchedAt When the resource was fetched.
+	 */
+	record CacheEntry(@Nullable String payload, Instant fetchedAt) {
+	}
+}
@@ -1,17 +1,38 @@
 package dev.rilling.musicbrainzenricher.api.discogs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
+import dev.rilling.musicbrainzenricher.api.SingleFlight;
+import dev.rilling.musicbrainzenricher.api.discogs.DiscogsCacheRepository.CacheEntry;
 import io.github.bucket4j.Bucket;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Looks up discogs resources.
+ * <p>
+ * Responses, including not found ones, are cached in {@link DiscogsCacheRepository} for
+ * {@code musicbrainz-enricher.discogs-cache.ttl} and {@code musicbrainz-enricher.discogs-cache.negative-ttl}
+ * respectively, so that they do not consume rate limit again. Concurrent lookups of the same resource are made only
+ * once.
+ */
 // https://www.discogs.com/developers/
 @Service
 @ThreadSafe
@@ -19,37 +40,133 @@ public class DiscogsQueryService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DiscogsQueryService.class);
 
+	private static final String RELEASE_RESOURCE_TYPE = "release";
+	private static final String MASTER_RESOURCE_TYPE = "master";
+
+	private final Duration ttl;
+	private final Duration negativeTtl;
+
 	private final Bucket bucket;
 	private final RestClient restClient;
+	private final DiscogsCacheRepository discogsCacheRepository;
+	private final ObjectMapper objectMapper;
 
-	DiscogsQueryService(@Qualifier("discogsRestClient") RestClient restClient,
-						@Qualifier("discogsBucket") Bucket bucket) {
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final SingleFlight<String, Optional<?>> singleFlight = new SingleFlight<>();
+
+	DiscogsQueryService(Environment environment,
+						@Qualifier("discogsRestClient") RestClient restClient,
+						@Qualifier("discogsBucket") Bucket bucket,
+						DiscogsCacheRepository discogsCacheRepository,
+						ObjectMapper objectMapper) {
 		this.bucket = bucket;
 		this.restClient = restClient;
+		this.discogsCacheRepository = discogsCacheRepository;
+		this.objectMapper = objectMapper;
+
+		ttl = environment.getRequiredProperty("musicbrainz-enricher.discogs-cache.ttl", Duration.class);
+		negativeTtl = environment.getRequiredProperty("musicbrainz-enricher.discogs-cache.negative-ttl", Duration.class);
 	}
 
 
+	/**
+	 * @param id ID of the release.
+	 * @return Release, or empty if it does not exist.
+	 * @throws LookupFailedException If the release could not be looked up.
+	 */
 	public Optional<DiscogsRelease> lookUpRelease(final String id) {
+		return lookUp(RELEASE_RESOURCE_TYPE, "/releases/{id}", id, DiscogsRelease.class);
+	}
+
+
+	/**
+	 * @param id ID of the master.
+	 * @return Master, or empty if it does not exist.
+	 * @throws LookupFailedException If the master could not be looked up.
+	 */
+	public Optional<DiscogsMaster> lookUpMaster(final String id) {
+		return lookUp(MASTER_RESOURCE_TYPE, "/masters/{id}", id, DiscogsMaster.class);
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		long currentHits = hits.get();
+		long total = currentHits + misses.get();
+		LOGGER.info("Discogs cache statistics: {} of {} lookup(s) were cached ({}%).",
+			currentHits,
+			total,
+			total == 0 ? 0 : currentHits * 100 / total);
+		LOGGER.info("Discogs statistics: {} lookup(s) shared with concurrent lookups of the same resource.",
+			singleFlight.getSharedCalls());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Optional<T> lookUp(String resourceType, String uri, String id, Class<T> type) {
+		// Keys include the resource type, so results always have the type requested for it.
+		return (Optional<T>) singleFlight.execute(resourceType + '/' + id,
+			() -> lookUpUnshared(resourceType, uri, id, type));
+	}
+
+	private <T> Optional<T> lookUpUnshared(String resourceType, String uri, String id, Class<T> type) {
+		Optional<CacheEntry> cacheEntry = findCacheEntry(resourceType, id);
+		if (cacheEntry.isPresent() && isFresh(cacheEntry.get())) {
+			hits.incrementAndGet();
+			if (cacheEntry.get().payload() == null) {
+				LOGGER.trace("Using cached not found response for {} '{}'.", resourceType, id);
+				return Optional.empty();
+			}
+			try {
+				return Optional.of(objectMapper.readValue(cacheEntry.get().payload(), type));
+			} catch (JsonProcessingException e) {
+				LOGGER.warn("Could not read cached {} '{}', looking it up again.", resourceType, id, e);
+			}
+		}
+		misses.incrementAndGet();
+
 		bucket.asBlocking().consumeUninterruptibly(1);
 
+		T result;
 		try {
-			return Optional.ofNullable(restClient.get().uri("/releases/{id}", Map.of("id", id)).accept().retrieve().body(DiscogsRelease.class));
-		} catch (RestClientException e) {
-			LOGGER.warn("Could not look up release '{}'.", id, e);
+			result = restClient.get().uri(uri, Map.of("id", id)).retrieve().body(type);
+		} catch (HttpClientErrorException.NotFound e) {
+			LOGGER.warn("Could not find {} '{}'.", resourceType, id);
+			saveCacheEntry(resourceType, id, null);
 			return Optional.empty();
+		} catch (RestClientException e) {
+			LOGGER.warn("Could not look up {} '{}'.", resourceType, id, e);
+			throw new LookupFailedException("Could not look up %s '%s'.".formatted(resourceType, id), e);
+		}
+		if (result == null) {
+			throw new LookupFailedException("Got no %s '%s'.".formatted(resourceType, id));
 		}
+		try {
+			saveCacheEntry(resourceType, id, objectMapper.writeValueAsString(result));
+		} catch (JsonProcessingException e) {
+			LOGGER.warn("Could not cache {} '{}'.", resourceType, id, e);
+		}
+		return Optional.of(result);
 	}
 
+	private boolean isFresh(CacheEntry cacheEntry) {
+		Duration entryTtl = cacheEntry.payload() != null ? ttl : negativeTtl;
+		return cacheEntry.fetchedAt().plus(entryTtl).isAfter(Instant.now());
+	}
 
-	public Optional<DiscogsMaster> lookUpMaster(final String id) {
-		bucket.asBlocking().consumeUninterruptibly(1);
-
+	private Optional<CacheEntry> findCacheEntry(String resourceType, String id) {
 		try {
-			return Optional.ofNullable(restClient.get().uri("/masters/{id}", Map.of("id", id)).retrieve().body(DiscogsMaster.class));
-		} catch (RestClientException e) {
-			LOGGER.warn("Could not look up master '{}'.", id, e);
+			return discogsCacheRepository.find(resourceType, id);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Could not read cached {} '{}'.", resourceType, id, e);
 			return Optional.empty();
 		}
 	}
 
+	private void saveCacheEntry(String resourceType, String id, @Nullable String payload) {
+		try {
+			discogsCacheRepository.save(resourceType, id, payload);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Could not cache {} '{}'.", resourceType, id, e);
+		}
+	}
 }
@@ -0,0 +1,147 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import net.jcip.annotations.ThreadSafe;
+import org.musicbrainz.model.entity.EntityWs2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits tag edits on a dedicated thread, so that callers do not wait for the musicbrainz API.
+ * <p>
+ * Pending submissions are kept in a bounded queue, adding to a full queue blocks until a submission was processed.
+ * Failed submissions are retried with exponential backoff. Unexpected errors fail only the affected submission, so
+ * the queue keeps being processed.
+ */
+@ThreadSafe
+class AsyncEditSubmitter implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncEditSubmitter.class);
+
+	private static final long POLL_TIMEOUT_MILLIS = 500;
+
+	private final MusicbrainzEditService musicbrainzEditService;
+	private final int maxAttempts;
+	private final Duration initialBackoff;
+
+	private final BlockingQueue<PendingSubmission> queue;
+	private final Thread submitterThread;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * @param musicbrainzEditService Service to submit edits with.
+	 * @param queueCapacity          Maximum number of pending submissions.
+	 * @param maxAttempts            Maximum number of attempts per submission.
+	 * @param initialBackoff         Time to wait before the first retry, doubled for every further retry.
+	 */
+	AsyncEditSubmitter(MusicbrainzEditService musicbrainzEditService,
+					   int queueCapacity,
+					   int maxAttempts,
+					   Duration initialBackoff) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Max attempts must be at least 1.");
+		}
+		this.musicbrainzEditService = musicbrainzEditService;
+		this.maxAttempts = maxAttempts;
+		this.initialBackoff = initialBackoff;
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		submitterThread = Thread.ofVirtual().name("edit-submitter").start(this::processQueue);
+	}
+
+	/**
+	 * Queues the submission of the tags set in the given entities. Blocks while the queue is full.
+	 *
+	 * @param entities Entities with tags set.
+	 * @return Future completed once the tags were submitted, or exceptionally once all attempts failed.
+	 */
+	public CompletableFuture<Void> submitUserTags(Set<EntityWs2> entities) {
+		if (closed) {
+			throw new IllegalStateException("Submitter is closed.");
+		}
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			queue.put(new PendingSubmission(entities, future));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Stops accepting submissions and waits until all pending ones were processed.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LOGGER.debug("Waiting for {} pending submissions.", queue.size());
+		try {
+			submitterThread.join();
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while waiting for pending submissions.", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void processQueue() {
+		while (!closed || !queue.isEmpty()) {
+			PendingSubmission pendingSubmission;
+			try {
+				pendingSubmission = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				LOGGER.warn("Interrupted, {} pending submissions will not be submitted.", queue.size(), e);
+				return;
+			}
+			if (pendingSubmission != null) {
+				process(pendingSubmission);
+			}
+		}
+	}
+
+	private void process(PendingSubmission pendingSubmission) {
+		Set<EntityWs2> entities = pendingSubmission.entities();
+		Duration backoff = initialBackoff;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				LOGGER.info("Submitting user tags for {} entities.", entities.size());
+				musicbrainzEditService.submitUserTags(entities);
+				LOGGER.info("Successfully submitted user tags for {} entities.", entities.size());
+				pendingSubmission.future().complete(null);
+				return;
+			} catch (RuntimeException e) {
+				LOGGER.error("Could not submit user tags due to an unexpected error.", e);
+				pendingSubmission.future().completeExceptionally(e);
+				return;
+			} catch (MusicbrainzException e) {
+				if (attempt >= maxAttempts) {
+					LOGGER.error("Could not submit user tags, giving up after {} attempts.", attempt, e);
+					pendingSubmission.future().completeExceptionally(e);
+					return;
+				}
+				LOGGER.warn("Could not submit user tags (attempt {} of {}), retrying in {}.",
+					attempt,
+					maxAttempts,
+					backoff,
+					e);
+			}
+
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				pendingSubmission.future().completeExceptionally(e);
+				return;
+			}
+			backoff = backoff.multipliedBy(2);
+		}
+	}
+
+	private record PendingSubmission(Set<EntityWs2> entities, CompletableFuture<Void> future) {
+	}
+}
@@ -2,51 +2,91 @@ package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
 import net.jcip.annotations.ThreadSafe;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 /**
  * Worker processing chunks of up to N items.
  * If after addition at least N items are present, they are immediately processed as a chunk of N
- * Chunks may have fewer than N items (but at least 1) if processing was forced using {@link #flush()}.
+ * Chunks may have fewer than N items (but at least 1) if processing was forced using {@link #flush()}, or if the
+ * oldest item was waiting for longer than the maximum linger time when {@link #flushExpired()} is called.
+ * <p>
+ * Adding items does not lock: the number of queued items is tracked separately, and a chunk is claimed by atomically
+ * subtracting its size from it. Items count against the capacity until their chunk was processed, adding further
+ * items blocks while the capacity is exhausted.
  *
  * @param <TItem> Item type.
  */
 @ThreadSafe
 class ChunkedWorker<TItem> {
 	private final int chunkSize;
+	private final long maxLingerNanos;
+	private final LongSupplier nanoTimeSupplier;
 
-	private final Queue<TItem> queue = new ConcurrentLinkedQueue<>();
-
-	private final Object workChunkingLock = new Object();
+	private final Queue<PendingItem<TItem>> queue = new ConcurrentLinkedQueue<>();
+	// Number of items in the queue that are not claimed by a chunk yet. May be lower than the actual queue size while
+	// items are being added, but never higher, so claimed items can always be taken from the queue.
+	private final AtomicInteger unclaimedCount = new AtomicInteger(0);
+	private final Semaphore capacity;
 
 	private final Consumer<Set<TItem>> workProcessor;
 
 	/**
 	 * @param chunkSize     Size of a chunk. Once reached, automatic flushing is done.
+	 * @param capacity      Maximum number of items that may be queued or processed at the same time. Must be at
+	 *                      least the chunk size.
+	 * @param maxLinger     Maximum time an item should wait for its chunk to fill. Items waiting longer are flushed
+	 *                      by {@link #flushExpired()}.
 	 * @param workProcessor Function processing a chunk of items. The chunk of items will not be modified by this
 	 *                      worker after calling the processor.
 	 */
-	ChunkedWorker(int chunkSize, Consumer<Set<TItem>> workProcessor) {
+	ChunkedWorker(int chunkSize, int capacity, Duration maxLinger, Consumer<Set<TItem>> workProcessor) {
+		this(chunkSize, capacity, maxLinger, workProcessor, System::nanoTime);
+	}
+
+	// Visible for testing.
+	ChunkedWorker(int chunkSize,
+				  int capacity,
+				  Duration maxLinger,
+				  Consumer<Set<TItem>> workProcessor,
+				  LongSupplier nanoTimeSupplier) {
 		if (chunkSize < 1) {
 			throw new IllegalArgumentException("Chunk size must be at least 1.");
 		}
+		if (capacity < chunkSize) {
+			throw new IllegalArgumentException("Capacity must be at least the chunk size.");
+		}
 		this.chunkSize = chunkSize;
+		this.capacity = new Semaphore(capacity);
+		this.maxLingerNanos = maxLinger.toNanos();
 		this.workProcessor = workProcessor;
+		this.nanoTimeSupplier = nanoTimeSupplier;
 	}
 
 	/**
 	 * Adds an item. If chunk size is reached, this may lead to an invocation of {@link #workProcessor}.
+	 * Blocks while the capacity is exhausted.
 	 *
 	 * @param input Item to add.
 	 */
 	public void add(TItem input) {
-		queue.add(input);
-		flush(false);
+		capacity.acquireUninterruptibly();
+		queue.add(new PendingItem<>(input, nanoTimeSupplier.getAsLong()));
+		if (unclaimedCount.incrementAndGet() >= chunkSize) {
+			// Loops until fewer than a full chunk is unclaimed, so no full chunk is left behind once this returns.
+			int claimed;
+			while ((claimed = claim(chunkSize, true)) > 0) {
+				process(claimed);
+			}
+		}
 	}
 
 	/**
@@ -54,30 +94,58 @@ class ChunkedWorker<TItem> {
 	 * {@link #workProcessor}.
 	 */
 	public void flush() {
-		flush(true);
+		int claimed;
+		while ((claimed = claim(chunkSize, false)) > 0) {
+			process(claimed);
+		}
 	}
 
-	private void flush(boolean force) {
-		final Set<TItem> items;
-		synchronized (workChunkingLock) {
-			if (force) {
-				if (queue.isEmpty()) {
-					return;
-				}
-			} else {
-				if (queue.size() < chunkSize) {
-					return;
-				}
+	/**
+	 * Flushes chunks as long as the oldest item was added longer than the maximum linger time ago. Meant to be called
+	 * periodically, so that items are not kept indefinitely if the chunk size is not reached.
+	 */
+	public void flushExpired() {
+		PendingItem<TItem> oldest;
+		while ((oldest = queue.peek()) != null && nanoTimeSupplier.getAsLong() - oldest.addedNanos() >= maxLingerNanos) {
+			int claimed = claim(chunkSize, false);
+			if (claimed == 0) {
+				// The oldest item is already claimed by another chunk.
+				return;
 			}
+			process(claimed);
+		}
+	}
 
-			// Note that the queue may be larger than chunkSize at this point as the queue can still be modified.
-			// Due to that, we only take chunkSize items.
-			items = new HashSet<>(chunkSize);
-			while (queue.peek() != null && items.size() < chunkSize) {
-				items.add(queue.poll());
+	/**
+	 * @param onlyFull If only a full chunk should be claimed.
+	 * @return Number of items claimed, 0 if none could be claimed.
+	 */
+	private int claim(int maxItems, boolean onlyFull) {
+		while (true) {
+			int unclaimed = unclaimedCount.get();
+			if (unclaimed == 0 || (onlyFull && unclaimed < maxItems)) {
+				return 0;
+			}
+			int claimed = Math.min(unclaimed, maxItems);
+			if (unclaimedCount.compareAndSet(unclaimed, unclaimed - claimed)) {
+				return claimed;
 			}
 		}
+	}
+
+	private void process(int claimed) {
+		Set<TItem> items = new HashSet<>(claimed);
+		for (int i = 0; i < claimed; i++) {
+			// Cannot be null, as items are counted only after being added to the queue.
+			items.add(queue.poll().item());
+		}
+		try {
+			workProcessor.accept(Collections.unmodifiableSet(items));
+		} finally {
+			capacity.release(claimed);
+		}
+	}
 
-		workProcessor.accept(Collections.unmodifiableSet(items));
+	private record PendingItem<TItem>(TItem item, long addedNanos) {
 	}
 }
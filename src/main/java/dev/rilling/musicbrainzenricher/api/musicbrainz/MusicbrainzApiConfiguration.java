@@ -1,26 +1,43 @@
 package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
-import dev.rilling.musicbrainzenricher.api.LoggingBucketListener;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import dev.rilling.musicbrainzenricher.ApplicationConfigurationProperties.MusicbrainzRateLimit.Profile;
+import dev.rilling.musicbrainzenricher.api.AdaptiveRateLimiter;
+import jakarta.annotation.Nullable;
 import net.jcip.annotations.ThreadSafe;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.musicbrainz.webservice.WebService;
-import org.musicbrainz.webservice.impl.HttpClientWebServiceWs2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 @Configuration
 @ThreadSafe
 class MusicbrainzApiConfiguration {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(MusicbrainzApiConfiguration.class);
+
 	private static final Pattern UNSUPPORTED_VERSION_CHARACTER_PATTERN = Pattern.compile("-");
 
+	// Closed by the application context on shutdown.
+	@Bean("musicbrainzHttpClient")
+	CloseableHttpClient createHttpClient() {
+		return HttpClients.createSystem();
+	}
+
 	@Bean("musicbrainzWebService")
-	WebService createWebService(Environment environment) {
+	WebService createWebService(Environment environment,
+								@Qualifier("musicbrainzHttpClient") CloseableHttpClient httpClient) {
 		String host = environment.getRequiredProperty("musicbrainz-enricher.host");
 		String applicationName = environment.getRequiredProperty("musicbrainz-enricher.name");
 		String applicationVersion = environment.getRequiredProperty("musicbrainz-enricher.version");
@@ -28,14 +45,16 @@ class MusicbrainzApiConfiguration {
 		String username = environment.getRequiredProperty("musicbrainz-enricher.musicbrainz.username");
 		String password = environment.getRequiredProperty("musicbrainz-enricher.musicbrainz.password");
 
-		HttpClientWebServiceWs2 webService = new HttpClientWebServiceWs2(applicationName,
-			applicationVersion,
-			applicationContact);
+		// See https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting#Provide_meaningful_User-Agent_strings
+		String userAgent = "%s/%s ( %s )".formatted(applicationName, applicationVersion, applicationContact);
+		RateLimitedWebServiceWs2 webService = new RateLimitedWebServiceWs2(host,
+			userAgent,
+			httpClient,
+			createRateLimiter(environment, host));
 		String client = getClient(applicationName, applicationVersion);
 		webService.setClient(client);
 		webService.setUsername(username);
 		webService.setPassword(password);
-		webService.setHost(host);
 		return webService;
 	}
 
@@ -46,12 +65,26 @@ class MusicbrainzApiConfiguration {
 		return "%s-%s".formatted(applicationName, adaptedApplicationVersion);
 	}
 
-	@Bean("musicbrainzBucket")
-	Bucket musicbrainzBucket() {
-		// See per-IP-address limit https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting,
-		// further slowed down to adapt for network fluctuations.
-		Bandwidth bandwidth = Bandwidth.simple(1, Duration.ofMillis(1500));
+	@Nullable
+	private static AdaptiveRateLimiter createRateLimiter(Environment environment, String host) {
+		Binder binder = Binder.get(environment);
+		Map<String, Profile> hostProfiles = binder.bind("musicbrainz-enricher.musicbrainz-rate-limit.host-profiles",
+			Bindable.mapOf(String.class, Profile.class)).orElse(Map.of());
+		// The host may contain a scheme and port.
+		String hostName = URI.create(host.contains("://") ? host : "https://" + host).getHost();
+		Profile profile = hostProfiles.containsKey(hostName) ? hostProfiles.get(hostName) : binder.bind(
+			"musicbrainz-enricher.musicbrainz-rate-limit.default-profile",
+			Profile.class).get();
 
-		return Bucket.builder().addLimit(bandwidth).build().toListenable(new LoggingBucketListener("musicbrainz"));
+		if (profile.unlimited()) {
+			LOGGER.info("Not rate limiting requests to musicbrainz host '{}'.", host);
+			return null;
+		}
+		// See per-IP-address limit https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting.
+		return new AdaptiveRateLimiter("musicbrainz",
+			profile.initialRate(),
+			profile.minRate(),
+			profile.maxRate(),
+			Duration.ofMinutes(1));
 	}
 }
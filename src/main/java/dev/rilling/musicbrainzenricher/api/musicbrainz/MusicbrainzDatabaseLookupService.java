@@ -0,0 +1,122 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzDatabaseRepository.DatabaseEntity;
+import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzDatabaseRepository.UrlRelation;
+import net.jcip.annotations.ThreadSafe;
+import org.musicbrainz.DomainsWs2;
+import org.musicbrainz.model.RelationWs2;
+import org.musicbrainz.model.TagWs2;
+import org.musicbrainz.model.entity.EntityWs2;
+import org.musicbrainz.model.entity.ReleaseGroupWs2;
+import org.musicbrainz.model.entity.ReleaseWs2;
+import org.musicbrainz.utils.MbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Looks up entities from the local copy of the musicbrainz database instead of the API.
+ * <p>
+ * Only the data the enrichment needs is loaded (URL relations, tags and the release group of releases), but many
+ * entities can be loaded with a single query and without consuming rate limit. Because the local copy may lag behind,
+ * callers should check {@link #isUpToDate()} and fall back to {@link MusicbrainzLookupService} if needed.
+ */
+@Service
+@ThreadSafe
+public class MusicbrainzDatabaseLookupService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MusicbrainzDatabaseLookupService.class);
+
+	private final Duration maxReplicationAge;
+
+	private final MusicbrainzDatabaseRepository musicbrainzDatabaseRepository;
+
+	MusicbrainzDatabaseLookupService(Environment environment,
+									 MusicbrainzDatabaseRepository musicbrainzDatabaseRepository) {
+		this.musicbrainzDatabaseRepository = musicbrainzDatabaseRepository;
+
+		maxReplicationAge = environment.getRequiredProperty("musicbrainz-enricher.database.max-replication-age",
+			Duration.class);
+	}
+
+	/**
+	 * Checks if the local database was replicated recently enough to be used instead of the API.
+	 *
+	 * @return if the local database can be used.
+	 */
+	public boolean isUpToDate() {
+		Optional<Instant> lastReplicationDate = musicbrainzDatabaseRepository.findLastReplicationDate();
+		if (lastReplicationDate.isEmpty()) {
+			LOGGER.debug("Local database was never replicated.");
+			return false;
+		}
+		boolean upToDate = lastReplicationDate.get().plus(maxReplicationAge).isAfter(Instant.now());
+		if (!upToDate) {
+			LOGGER.debug("Local database was last replicated at {}, which is too long ago.", lastReplicationDate.get());
+		}
+		return upToDate;
+	}
+
+	/**
+	 * Looks up releases including their URL relations, tags and release group.
+	 *
+	 * @param mbids MBIDs of releases.
+	 * @return Found releases by MBID. Releases not found are missing from the map.
+	 */
+	public Map<UUID, ReleaseWs2> lookUpReleases(Collection<UUID> mbids) {
+		Map<UUID, DatabaseEntity> databaseReleases = musicbrainzDatabaseRepository.findReleases(mbids);
+		Map<UUID, ReleaseWs2> releases = new HashMap<>(databaseReleases.size());
+		databaseReleases.forEach((mbid, databaseRelease) -> {
+			ReleaseWs2 release = new ReleaseWs2();
+			release.setIdUri(MbUtils.convertIdToURI(mbid.toString(), DomainsWs2.RELEASE));
+			populate(release, databaseRelease.tags(), databaseRelease.urlRelations());
+
+			ReleaseGroupWs2 releaseGroup = new ReleaseGroupWs2();
+			releaseGroup.setIdUri(MbUtils.convertIdToURI(String.valueOf(databaseRelease.releaseGroupMbid()),
+				DomainsWs2.RELEASEGROUP));
+			populate(releaseGroup, databaseRelease.releaseGroupTags(), List.of());
+			release.setReleaseGroup(releaseGroup);
+
+			releases.put(mbid, release);
+		});
+		return releases;
+	}
+
+	/**
+	 * Looks up release groups including their URL relations and tags.
+	 *
+	 * @param mbids MBIDs of release groups.
+	 * @return Found release groups by MBID. Release groups not found are missing from the map.
+	 */
+	public Map<UUID, ReleaseGroupWs2> lookUpReleaseGroups(Collection<UUID> mbids) {
+		Map<UUID, DatabaseEntity> databaseReleaseGroups = musicbrainzDatabaseRepository.findReleaseGroups(mbids);
+		Map<UUID, ReleaseGroupWs2> releaseGroups = new HashMap<>(databaseReleaseGroups.size());
+		databaseReleaseGroups.forEach((mbid, databaseReleaseGroup) -> {
+			ReleaseGroupWs2 releaseGroup = new ReleaseGroupWs2();
+			releaseGroup.setIdUri(MbUtils.convertIdToURI(mbid.toString(), DomainsWs2.RELEASEGROUP));
+			populate(releaseGroup, databaseReleaseGroup.tags(), databaseReleaseGroup.urlRelations());
+
+			releaseGroups.put(mbid, releaseGroup);
+		});
+		return releaseGroups;
+	}
+
+	private void populate(EntityWs2 entity, List<String> tags, List<UrlRelation> urlRelations) {
+		for (String tag : tags) {
+			entity.addTag(new TagWs2(tag));
+		}
+		for (UrlRelation urlRelation : urlRelations) {
+			// Mirrors how relations are parsed from API responses.
+			RelationWs2 relation = new RelationWs2();
+			relation.setType(MbUtils.convertTypeToURI(urlRelation.linkType(), DomainsWs2.NS_REL_2_PREFIX));
+			relation.setTargetType(RelationWs2.TO_URL);
+			relation.setTargetId(urlRelation.url());
+			entity.getRelationList().addRelation(relation);
+		}
+	}
+}
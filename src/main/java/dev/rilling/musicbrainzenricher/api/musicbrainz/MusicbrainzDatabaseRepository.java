@@ -0,0 +1,143 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import jakarta.annotation.Nullable;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Reads entity data directly from the local copy of the musicbrainz database.
+ */
+@Repository
+@ThreadSafe
+class MusicbrainzDatabaseRepository {
+
+	private final JdbcClient jdbcClient;
+
+	MusicbrainzDatabaseRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	Optional<Instant> findLastReplicationDate() {
+		return jdbcClient.sql("SELECT last_replication_date FROM musicbrainz.replication_control")
+			.query((rs, rowNum) -> Optional.ofNullable(rs.getObject("last_replication_date", OffsetDateTime.class)))
+			.optional()
+			.flatMap(lastReplicationDate -> lastReplicationDate.map(OffsetDateTime::toInstant));
+	}
+
+	Map<UUID, DatabaseEntity> findReleases(Collection<UUID> mbids) {
+		if (mbids.isEmpty()) {
+			return Map.of();
+		}
+		Map<UUID, DatabaseEntity> releases = new HashMap<>(mbids.size());
+		jdbcClient.sql("""
+				SELECT r.gid,
+					   rg.gid AS release_group_gid,
+					   ARRAY(SELECT t.name
+							 FROM musicbrainz.release_tag rt
+									  JOIN musicbrainz.tag t ON rt.tag = t.id
+							 WHERE rt.release = r.id) AS tags,
+					   ARRAY(SELECT t.name
+							 FROM musicbrainz.release_group_tag rgt
+									  JOIN musicbrainz.tag t ON rgt.tag = t.id
+							 WHERE rgt.release_group = rg.id) AS release_group_tags,
+					   lt.name AS link_type,
+					   u.url
+				FROM musicbrainz.release r
+						 JOIN musicbrainz.release_group rg ON r.release_group = rg.id
+						 LEFT JOIN musicbrainz.l_release_url lru ON lru.entity0 = r.id
+						 LEFT JOIN musicbrainz.link l ON lru.link = l.id
+						 LEFT JOIN musicbrainz.link_type lt ON l.link_type = lt.id
+						 LEFT JOIN musicbrainz.url u ON lru.entity1 = u.id
+				WHERE r.gid IN (:mbids)
+				""")
+			.param("mbids", mbids)
+			.query(rs -> {
+				UUID mbid = rs.getObject("gid", UUID.class);
+				// There is one row per URL relation, so we only read entity data for the first row of an entity.
+				DatabaseEntity release = releases.get(mbid);
+				if (release == null) {
+					release = new DatabaseEntity(mbid,
+						rs.getObject("release_group_gid", UUID.class),
+						getStrings(rs, "tags"),
+						getStrings(rs, "release_group_tags"),
+						new ArrayList<>(5));
+					releases.put(mbid, release);
+				}
+				addUrlRelation(rs, release);
+			});
+		return releases;
+	}
+
+	Map<UUID, DatabaseEntity> findReleaseGroups(Collection<UUID> mbids) {
+		if (mbids.isEmpty()) {
+			return Map.of();
+		}
+		Map<UUID, DatabaseEntity> releaseGroups = new HashMap<>(mbids.size());
+		jdbcClient.sql("""
+				SELECT rg.gid,
+					   ARRAY(SELECT t.name
+							 FROM musicbrainz.release_group_tag rgt
+									  JOIN musicbrainz.tag t ON rgt.tag = t.id
+							 WHERE rgt.release_group = rg.id) AS tags,
+					   lt.name AS link_type,
+					   u.url
+				FROM musicbrainz.release_group rg
+						 LEFT JOIN musicbrainz.l_release_group_url lrgu ON lrgu.entity0 = rg.id
+						 LEFT JOIN musicbrainz.link l ON lrgu.link = l.id
+						 LEFT JOIN musicbrainz.link_type lt ON l.link_type = lt.id
+						 LEFT JOIN musicbrainz.url u ON lrgu.entity1 = u.id
+				WHERE rg.gid IN (:mbids)
+				""")
+			.param("mbids", mbids)
+			.query(rs -> {
+				UUID mbid = rs.getObject("gid", UUID.class);
+				DatabaseEntity releaseGroup = releaseGroups.get(mbid);
+				if (releaseGroup == null) {
+					releaseGroup = new DatabaseEntity(mbid, null, getStrings(rs, "tags"), List.of(), new ArrayList<>(5));
+					releaseGroups.put(mbid, releaseGroup);
+				}
+				addUrlRelation(rs, releaseGroup);
+			});
+		return releaseGroups;
+	}
+
+	private static void addUrlRelation(ResultSet rs, DatabaseEntity entity) throws SQLException {
+		String url = rs.getString("url");
+		// Entities without any URL relation are still returned, with the relation columns being null.
+		if (url != null) {
+			entity.urlRelations().add(new UrlRelation(rs.getString("link_type"), url));
+		}
+	}
+
+	private static List<String> getStrings(ResultSet rs, String column) throws SQLException {
+		return List.of((String[]) rs.getArray(column).getArray());
+	}
+
+	/**
+	 * @param mbid              MBID of the entity.
+	 * @param releaseGroupMbid  MBID of the release group, if the entity is a release.
+	 * @param tags              Names of the tags of the entity.
+	 * @param releaseGroupTags  Names of the tags of the release group, if the entity is a release.
+	 * @param urlRelations      URL relations of the entity.
+	 */
+	record DatabaseEntity(UUID mbid,
+						  @Nullable UUID releaseGroupMbid,
+						  List<String> tags,
+						  List<String> releaseGroupTags,
+						  List<UrlRelation> urlRelations) {
+	}
+
+	/**
+	 * @param linkType Name of the link type, e.g. {@code discogs}.
+	 * @param url      Target URL.
+	 */
+	record UrlRelation(String linkType, String url) {
+	}
+}
@@ -1,21 +1,28 @@
 package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
 import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.model.TagWs2;
 import org.musicbrainz.model.entity.EntityWs2;
 import org.musicbrainz.model.entity.ReleaseGroupWs2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages edits against the musicbrainz API.
  * <p>
- * This controller also attempts to reduce requests by grouping data submissions. During application shutdown,
- * {@link #flush()} is called to ensure all remaining data is submitted.
+ * This controller also attempts to reduce requests by grouping data submissions. Grouped submissions are submitted
+ * once {@code musicbrainz-enricher.tag-submission.max-linger} has passed since their oldest edit at the latest, even
+ * if the group is not full yet. Groups are submitted asynchronously, so that enrichments do not wait for them.
+ * During application shutdown, {@link #flush()} is called to ensure all remaining data is submitted.
  */
 @Service
 @ThreadSafe
@@ -23,14 +30,32 @@ public class MusicbrainzEditController {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MusicbrainzEditController.class);
 
 	static final int TAG_SUBMISSION_SIZE = 50;
+	// Enrichments block once this many tag submissions are pending.
+	private static final int TAG_SUBMISSION_CAPACITY = TAG_SUBMISSION_SIZE * 4;
 
-	private final MusicbrainzEditService musicbrainzEditService;
+	private final AsyncEditSubmitter asyncEditSubmitter;
 
 	private final ChunkedWorker<EntityWs2> tagSubmissionWorker;
 
-	public MusicbrainzEditController(MusicbrainzEditService musicbrainzEditService) {
-		this.musicbrainzEditService = musicbrainzEditService;
-		tagSubmissionWorker = new ChunkedWorker<>(TAG_SUBMISSION_SIZE, this::doSubmitUserTags);
+	private final AtomicLong submittedEntityCount = new AtomicLong(0);
+	private final AtomicLong failedEntityCount = new AtomicLong(0);
+
+	// Prevents scheduled flushes from submitting to the already closed submitter during shutdown.
+	private final Object closeLock = new Object();
+	@GuardedBy("closeLock")
+	private boolean closed = false;
+
+	public MusicbrainzEditController(Environment environment, MusicbrainzEditService musicbrainzEditService) {
+		asyncEditSubmitter = new AsyncEditSubmitter(musicbrainzEditService,
+			environment.getRequiredProperty("musicbrainz-enricher.edit-submission.queue-capacity", Integer.class),
+			environment.getRequiredProperty("musicbrainz-enricher.edit-submission.max-attempts", Integer.class),
+			environment.getRequiredProperty("musicbrainz-enricher.edit-submission.initial-backoff", Duration.class));
+		Duration maxLinger = environment.getRequiredProperty("musicbrainz-enricher.tag-submission.max-linger",
+			Duration.class);
+		tagSubmissionWorker = new ChunkedWorker<>(TAG_SUBMISSION_SIZE,
+			TAG_SUBMISSION_CAPACITY,
+			maxLinger,
+			this::doSubmitUserTags);
 	}
 
 	/**
@@ -45,24 +70,48 @@ public class MusicbrainzEditController {
 		tagSubmissionWorker.add(releaseGroup);
 	}
 
+	@Scheduled(fixedDelayString = "${musicbrainz-enricher.tag-submission.linger-check-interval}",
+		initialDelayString = "${musicbrainz-enricher.tag-submission.linger-check-interval}")
+	void flushExpired() {
+		synchronized (closeLock) {
+			if (!closed) {
+				tagSubmissionWorker.flushExpired();
+			}
+		}
+	}
+
 	/**
-	 * Flushes any pending changes.
+	 * Flushes any pending changes. Submission happens asynchronously, use {@link #close()} to wait for it.
 	 */
-	@PreDestroy
 	public void flush() {
 		LOGGER.debug("Flushing tag submission worker.");
 		tagSubmissionWorker.flush();
 		LOGGER.debug("Flushed pending edits.");
 	}
 
-	private void doSubmitUserTags(Set<EntityWs2> submission) {
-		try {
-			LOGGER.info("Submitting user tags for {} entities.", submission.size());
-			musicbrainzEditService.submitUserTags(submission);
-			LOGGER.info("Successfully submitted user tags for {} entities.", submission.size());
-		} catch (MusicbrainzException e) {
-			LOGGER.error("Could not submit user tags.", e);
+	/**
+	 * Flushes any pending changes and waits until they were submitted.
+	 */
+	@PreDestroy
+	public void close() {
+		synchronized (closeLock) {
+			closed = true;
 		}
+		flush();
+		asyncEditSubmitter.close();
+		LOGGER.info("Submitted user tags for {} entities, failed for {} entities.",
+			submittedEntityCount.get(),
+			failedEntityCount.get());
+	}
+
+	private void doSubmitUserTags(Set<EntityWs2> submission) {
+		asyncEditSubmitter.submitUserTags(submission).whenComplete((ignored, throwable) -> {
+			if (throwable == null) {
+				submittedEntityCount.addAndGet(submission.size());
+			} else {
+				failedEntityCount.addAndGet(submission.size());
+			}
+		});
 	}
 
 	private void addTags(ReleaseGroupWs2 releaseGroup, Set<String> tags) {
@@ -1,6 +1,5 @@
 package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
-import io.github.bucket4j.Bucket;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.MBWS2Exception;
 import org.musicbrainz.model.entity.EntityWs2;
@@ -19,13 +18,10 @@ public class MusicbrainzEditService {
 	private final boolean dryRun;
 
 	private final WebService webService;
-	private final Bucket bucket;
 
 	MusicbrainzEditService(Environment environment,
-						   @Qualifier("musicbrainzWebService") WebService webService,
-						   @Qualifier("musicbrainzBucket") Bucket bucket) {
+						   @Qualifier("musicbrainzWebService") WebService webService) {
 		this.webService = webService;
-		this.bucket = bucket;
 
 		dryRun = environment.getRequiredProperty("musicbrainz-enricher.dry-run", Boolean.class);
 	}
@@ -42,8 +38,6 @@ public class MusicbrainzEditService {
 			return;
 		}
 
-		bucket.asBlocking().consumeUninterruptibly(1);
-
 		UserTagSubmissionWs2 query = new UserTagSubmissionWs2(webService);
 		try {
 			for (EntityWs2 entity : entities) {
@@ -1,6 +1,5 @@
 package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
-import io.github.bucket4j.Bucket;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.MBWS2Exception;
 import org.musicbrainz.controller.Release;
@@ -22,19 +21,14 @@ import java.util.UUID;
 public class MusicbrainzLookupService {
 
 	private final WebService webService;
-	private final Bucket bucket;
 
-	MusicbrainzLookupService(@Qualifier("musicbrainzWebService") WebService webService,
-							 @Qualifier("musicbrainzBucket") Bucket bucket) {
+	MusicbrainzLookupService(@Qualifier("musicbrainzWebService") WebService webService) {
 		this.webService = webService;
-		this.bucket = bucket;
 	}
 
 
 	public Optional<ReleaseWs2> lookUpRelease(UUID mbid, ReleaseIncludesWs2 includes)
 		throws MusicbrainzException {
-		bucket.asBlocking().consumeUninterruptibly(1);
-
 		Release release = new Release();
 		release.setQueryWs(webService);
 
@@ -52,8 +46,6 @@ public class MusicbrainzLookupService {
 
 	public Optional<ReleaseGroupWs2> lookUpReleaseGroup(UUID mbid, ReleaseGroupIncludesWs2 includes)
 		throws MusicbrainzException {
-		bucket.asBlocking().consumeUninterruptibly(1);
-
 		ReleaseGroup releaseGroup = new ReleaseGroup();
 		releaseGroup.setQueryWs(webService);
 
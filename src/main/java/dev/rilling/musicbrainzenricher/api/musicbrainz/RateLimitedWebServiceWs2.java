@@ -0,0 +1,262 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import dev.rilling.musicbrainzenricher.api.AdaptiveRateLimiter;
+import jakarta.annotation.Nullable;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.classic.methods.*;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.musicbrainz.webservice.*;
+import org.musicbrainz.wsxml.MbXMLException;
+import org.musicbrainz.wsxml.MbXmlParser;
+import org.musicbrainz.wsxml.MbXmlWriter;
+import org.musicbrainz.wsxml.element.Metadata;
+import org.musicbrainz.wsxml.impl.JDOMParserWs2;
+import org.musicbrainz.wsxml.impl.JDOMWriterWs2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Musicbrainz web service client that is rate limited by an {@link AdaptiveRateLimiter}.
+ * <p>
+ * Replaces {@link org.musicbrainz.webservice.impl.HttpClientWebServiceWs2}, which waits at least one second between
+ * any two requests and does not expose the responses' rate limit headers. Instead, the rate limiter is informed about
+ * {@code 503} responses and exhausted rate limits (see
+ * <a href="https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting">https://musicbrainz.org/doc/MusicBrainz_API/Rate_Limiting</a>),
+ * and throttled requests are retried. If requests are not rate limited, throttled requests are retried after the time
+ * the server asked us to wait for, or after an exponentially growing delay.
+ * <p>
+ * URLs are built like {@link org.musicbrainz.webservice.DefaultWebServiceWs2} does. That class cannot be extended
+ * here, as it is annotated with an annotation that is not available at compile time.
+ */
+@ThreadSafe
+class RateLimitedWebServiceWs2 implements WebService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitedWebServiceWs2.class);
+
+	private static final int MAX_ATTEMPTS = 5;
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final Duration INITIAL_RETRY_DELAY = Duration.ofSeconds(1);
+
+	private final String baseUrl;
+	private final String userAgent;
+	@Nullable
+	private final AdaptiveRateLimiter rateLimiter;
+
+	private final MbXmlParser parser = new JDOMParserWs2();
+	private final MbXmlWriter writer = new JDOMWriterWs2();
+	private final CloseableHttpClient httpClient;
+
+	@Nullable
+	private volatile String client;
+	@Nullable
+	private volatile String username;
+	@Nullable
+	private volatile String password;
+
+	/**
+	 * @param host        Host to connect to, optionally with port. Uses HTTPS unless it is prefixed with
+	 *                    {@code http://}.
+	 * @param userAgent   User agent to send.
+	 * @param httpClient  Client to execute requests with. Not closed by this class.
+	 * @param rateLimiter Rate limiter to use, or null if requests should not be limited.
+	 */
+	RateLimitedWebServiceWs2(String host,
+							 String userAgent,
+							 CloseableHttpClient httpClient,
+							 @Nullable AdaptiveRateLimiter rateLimiter) {
+		this.userAgent = userAgent;
+		this.httpClient = httpClient;
+		this.rateLimiter = rateLimiter;
+		baseUrl = (host.startsWith("http://") || host.startsWith("https://") ? host : "https://" + host) + "/ws/2/";
+	}
+
+	@Override
+	public Metadata get(String entity, String id, List<String> includeParams, Map<String, String> filterParams)
+		throws WebServiceException, MbXMLException {
+		Map<String, String> params = new LinkedHashMap<>();
+		if (filterParams != null) {
+			params.putAll(filterParams);
+		}
+		if (includeParams != null && !includeParams.isEmpty()) {
+			params.put("inc", String.join(" ", includeParams));
+		}
+		StringBuilder url = new StringBuilder(baseUrl).append(entity).append('/').append(id);
+		if ("collection".equals(entity) && !id.isEmpty()) {
+			url.append("/releases");
+		}
+		if (!params.isEmpty()) {
+			StringJoiner query = new StringJoiner("&", "?", "");
+			params.forEach((key, value) -> query.add(key + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8)));
+			url.append(query);
+		}
+		return execute(new HttpGet(url.toString()));
+	}
+
+	@Override
+	public Metadata post(Metadata md) throws WebServiceException, MbXMLException {
+		if (md == null || md.getSubmissionWs2() == null) {
+			throw new RequestException("Empty submission not allowed.");
+		}
+		HttpPost request = new HttpPost(baseUrl + md.getSubmissionWs2().getSubmissionType() + "?client=" + client);
+		request.setEntity(new StringEntity(writer.getXmlString(md), ContentType.APPLICATION_XML));
+		return execute(request);
+	}
+
+	@Override
+	public Metadata put(String entity, String id, List<String> params) throws WebServiceException, MbXMLException {
+		return execute(new HttpPut(createCollectionUrl(entity, id, params)));
+	}
+
+	@Override
+	public Metadata delete(String entity, String id, List<String> params) throws WebServiceException, MbXMLException {
+		return execute(new HttpDelete(createCollectionUrl(entity, id, params)));
+	}
+
+	@Override
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	@Override
+	public void setPassword(String password) {
+		this.password = password;
+	}
+
+	@Override
+	public void setClient(String client) {
+		this.client = client;
+	}
+
+	private String createCollectionUrl(String entity, String id, List<String> params) {
+		return baseUrl + entity + '/' + id + '/' + String.join(";", params) + "?client=" + client;
+	}
+
+	private Metadata execute(HttpUriRequestBase request) throws WebServiceException, MbXMLException {
+		request.setHeader(HttpHeaders.USER_AGENT, userAgent);
+
+		for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+			long acquiredAt;
+			try {
+				acquiredAt = rateLimiter != null ? rateLimiter.acquire() : 0;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WebServiceException("Interrupted while waiting to execute request '%s'.".formatted(request.getRequestUri()),
+					e);
+			}
+			Response response;
+			try {
+				response = httpClient.execute(request, createContext(), httpResponse -> new Response(httpResponse.getCode(),
+					httpResponse.getEntity() != null ? EntityUtils.toByteArray(httpResponse.getEntity()) : new byte[0],
+					getHeaderValue(httpResponse.getFirstHeader("Retry-After")),
+					getHeaderValue(httpResponse.getFirstHeader("X-RateLimit-Remaining")),
+					getHeaderValue(httpResponse.getFirstHeader("X-RateLimit-Reset"))));
+			} catch (IOException e) {
+				throw new WebServiceException("Could not execute request '%s'.".formatted(request.getRequestUri()), e);
+			}
+
+			int code = response.code();
+			if (code == HttpStatus.SC_SERVICE_UNAVAILABLE || code == HTTP_TOO_MANY_REQUESTS) {
+				LOGGER.debug("Request was throttled (attempt {} of {}).", attempt, MAX_ATTEMPTS);
+				Optional<Duration> retryAfter = AdaptiveRateLimiter.parseRetryAfter(response.retryAfter());
+				if (rateLimiter != null) {
+					rateLimiter.onThrottled(acquiredAt, retryAfter.orElse(null));
+				} else if (attempt < MAX_ATTEMPTS) {
+					// Nothing else slows down the retries.
+					waitBeforeRetry(request, retryAfter.orElse(INITIAL_RETRY_DELAY.multipliedBy(1L << (attempt - 1))));
+				}
+				continue;
+			}
+			if (rateLimiter != null) {
+				rateLimiter.onSuccess();
+				findRateLimitReset(response).ifPresent(rateLimiter::pause);
+			}
+
+			switch (code) {
+				case HttpStatus.SC_OK:
+					return parser.parse(new ByteArrayInputStream(response.body()));
+				case HttpStatus.SC_NOT_FOUND:
+					throw new ResourceNotFoundException("Not found: '%s'.".formatted(request.getRequestUri()));
+				case HttpStatus.SC_BAD_REQUEST:
+					throw new RequestException("Bad request: '%s'.".formatted(request.getRequestUri()));
+				case HttpStatus.SC_UNAUTHORIZED, HttpStatus.SC_FORBIDDEN:
+					throw new AuthorizationException("Not authorized: '%s'.".formatted(request.getRequestUri()));
+				default:
+					throw new WebServiceException("Unexpected status %d for '%s'.".formatted(code,
+						request.getRequestUri()));
+			}
+		}
+		throw new WebServiceException("Request '%s' was still throttled after %d attempts.".formatted(request.getRequestUri(),
+			MAX_ATTEMPTS));
+	}
+
+	private static void waitBeforeRetry(HttpUriRequestBase request, Duration delay) throws WebServiceException {
+		LOGGER.debug("Retrying request '{}' in {} ms.", request.getRequestUri(), delay.toMillis());
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebServiceException("Interrupted while waiting to retry request '%s'.".formatted(request.getRequestUri()),
+				e);
+		}
+	}
+
+	private HttpClientContext createContext() {
+		HttpClientContext context = HttpClientContext.create();
+		String currentUsername = username;
+		String currentPassword = password;
+		if (currentUsername != null && !currentUsername.isEmpty() && currentPassword != null) {
+			BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+			credentialsProvider.setCredentials(new AuthScope(null, -1),
+				new UsernamePasswordCredentials(currentUsername, currentPassword.toCharArray()));
+			context.setCredentialsProvider(credentialsProvider);
+		}
+		return context;
+	}
+
+	/**
+	 * If the server signals that no requests are remaining in the current window, returns the time until it resets.
+	 */
+	private static Optional<Duration> findRateLimitReset(Response response) {
+		if (!"0".equals(response.rateLimitRemaining()) || response.rateLimitReset() == null) {
+			return Optional.empty();
+		}
+		try {
+			Instant reset = Instant.ofEpochSecond(Long.parseLong(response.rateLimitReset()));
+			Duration untilReset = Duration.between(Instant.now(), reset);
+			return untilReset.isNegative() ? Optional.empty() : Optional.of(untilReset);
+		} catch (NumberFormatException e) {
+			LOGGER.debug("Could not parse rate limit reset '{}'.", response.rateLimitReset());
+			return Optional.empty();
+		}
+	}
+
+	@Nullable
+	private static String getHeaderValue(@Nullable Header header) {
+		return header != null ? header.getValue() : null;
+	}
+
+	private record Response(int code,
+							byte[] body,
+							@Nullable String retryAfter,
+							@Nullable String rateLimitRemaining,
+							@Nullable String rateLimitReset) {
+	}
+}
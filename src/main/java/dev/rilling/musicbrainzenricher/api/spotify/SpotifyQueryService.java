@@ -1,7 +1,11 @@
 package dev.rilling.musicbrainzenricher.api.spotify;
 
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
+import dev.rilling.musicbrainzenricher.api.RequestCoalescer;
+import dev.rilling.musicbrainzenricher.api.SingleFlight;
 import io.github.bucket4j.Bucket;
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.hc.core5.http.ParseException;
@@ -9,17 +13,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import se.michaelthelin.spotify.SpotifyApi;
 import se.michaelthelin.spotify.exceptions.SpotifyWebApiException;
 import se.michaelthelin.spotify.model_objects.credentials.ClientCredentials;
 import se.michaelthelin.spotify.model_objects.specification.Album;
-import se.michaelthelin.spotify.requests.data.albums.GetAlbumRequest;
+import se.michaelthelin.spotify.requests.data.albums.GetSeveralAlbumsRequest;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.*;
 
+/**
+ * Looks up spotify resources.
+ * <p>
+ * Album lookups from concurrent callers are combined into requests for several albums, waiting at most
+ * {@code musicbrainz-enricher.spotify-batch.max-wait} for a batch to fill. As only
+ * {@code musicbrainz-enricher.auto-query.concurrency} entities are enriched at the same time, a batch is closed once it
+ * has that many albums. Concurrent lookups of the same album are made only once.
+ */
 // https://github.com/thelinmichael/spotify-web-api-java
 // https://developer.spotify.com/documentation/web-api/guides/
 @Service
@@ -29,30 +43,79 @@ public class SpotifyQueryService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(SpotifyQueryService.class);
 
+	// https://developer.spotify.com/documentation/web-api/reference/get-multiple-albums
+	private static final int MAX_ALBUM_BATCH_SIZE = 20;
+
 	private final Bucket bucket;
 	private final SpotifyApi spotifyApi;
+	private final RequestCoalescer<String, Album> albumRequestCoalescer;
+	private final SingleFlight<String, Optional<Album>> albumSingleFlight = new SingleFlight<>();
 
 	@GuardedBy("spotifyApi")
 	@Nullable
 	private Instant tokenExpiration;
 
-	SpotifyQueryService(SpotifyApi spotifyApi,
+	SpotifyQueryService(Environment environment,
+						SpotifyApi spotifyApi,
 						@Qualifier("spotifyBucket") Bucket bucket) {
 		this.spotifyApi = spotifyApi;
 		this.bucket = bucket;
+
+		Duration batchMaxWait = environment.getRequiredProperty("musicbrainz-enricher.spotify-batch.max-wait",
+			Duration.class);
+		// Waiting for more albums than there are concurrent callers would always take the full wait time.
+		int concurrency = environment.getRequiredProperty("musicbrainz-enricher.auto-query.concurrency", Integer.class);
+		albumRequestCoalescer = new RequestCoalescer<>(Math.min(MAX_ALBUM_BATCH_SIZE, concurrency),
+			batchMaxWait,
+			this::lookUpReleases);
 	}
 
 
+	/**
+	 * @param id ID of the album.
+	 * @return Album, or empty if it does not exist.
+	 * @throws LookupFailedException If the album could not be looked up.
+	 */
 	public Optional<Album> lookUpRelease(final String id) {
+		// The coalescer only combines lookups of the same album if they end up in the same batch.
+		return albumSingleFlight.execute(id, () -> albumRequestCoalescer.load(id));
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		LOGGER.info("Spotify statistics: {} album lookup(s) shared with concurrent lookups of the same album.",
+			albumSingleFlight.getSharedCalls());
+	}
+
+	/**
+	 * Looks up several albums with a single request.
+	 *
+	 * @param ids IDs of the albums, at most {@value #MAX_ALBUM_BATCH_SIZE}.
+	 * @return Albums by ID. Albums that do not exist are missing from the map.
+	 * @throws LookupFailedException If the albums could not be looked up.
+	 */
+	public Map<String, Album> lookUpReleases(final Collection<String> ids) {
 		bucket.asBlocking().consumeUninterruptibly(1);
 
+		String[] idArray = ids.toArray(String[]::new);
+		Album[] albums;
 		try {
-			GetAlbumRequest request = getAuthorizedApiClient().getAlbum(id).build();
-			return Optional.of(request.execute());
+			GetSeveralAlbumsRequest request = getAuthorizedApiClient().getSeveralAlbums(idArray).build();
+			albums = request.execute();
 		} catch (IOException | SpotifyWebApiException | ParseException e) {
-			LOGGER.warn("Could not look up album.", e);
-			return Optional.empty();
+			LOGGER.warn("Could not look up albums: '{}'.", ids, e);
+			throw new LookupFailedException("Could not look up albums: '%s'.".formatted(ids), e);
+		}
+		LOGGER.trace("Looked up {} albums with one request.", idArray.length);
+
+		// Albums are returned in the order they were requested, with null for albums that were not found.
+		Map<String, Album> albumsById = new HashMap<>(albums.length);
+		for (int i = 0; i < Math.min(idArray.length, albums.length); i++) {
+			if (albums[i] != null) {
+				albumsById.put(idArray[i], albums[i]);
+			}
 		}
+		return albumsById;
 	}
 
 	// https://github.com/thelinmichael/spotify-web-api-java#client-credentials-flow
@@ -1,8 +1,10 @@
 package dev.rilling.musicbrainzenricher.api.wikidata;
 
+import dev.rilling.musicbrainzenricher.api.RequestCoalescer;
 import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.*;
@@ -11,19 +13,58 @@ import org.wikidata.wdtk.wikibaseapi.WikibaseDataFetcher;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads statements from wikidata.
+ * <p>
+ * Single lookups from concurrent callers are combined into batch requests, waiting at most
+ * {@code musicbrainz-enricher.wikidata.batch.max-wait} for a batch to fill.
+ */
 @Service
 @ThreadSafe
 public class WikidataService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(WikidataService.class);
 
+	// https://www.wikidata.org/w/api.php?action=help&modules=wbgetentities
+	private static final int MAX_BATCH_SIZE = 50;
+
 	private final BasicApiConnection wikidataApiConnection = BasicApiConnection.getWikidataApiConnection();
 
+	private final Duration batchMaxWait;
+
+	private final Map<String, RequestCoalescer<String, List<Statement>>> coalescersByPropertyId = new ConcurrentHashMap<>();
 
+	WikidataService(Environment environment) {
+		batchMaxWait = environment.getRequiredProperty("musicbrainz-enricher.wikidata.batch.max-wait", Duration.class);
+	}
+
+	/**
+	 * Finds the statements of an entity for a property.
+	 *
+	 * @param entityId   ID of the entity.
+	 * @param propertyId ID of the property.
+	 * @return Statements, empty list if the entity has none for the property. Empty if the entity could not be loaded.
+	 */
 	public Optional<List<Statement>> findEntityPropertyValues(String entityId, String propertyId) {
+		return coalescersByPropertyId.computeIfAbsent(propertyId,
+				key -> new RequestCoalescer<>(MAX_BATCH_SIZE,
+					batchMaxWait,
+					entityIds -> findEntitiesPropertyValues(entityIds, key)))
+			.load(entityId);
+	}
+
+	/**
+	 * Finds the statements of entities for a property.
+	 *
+	 * @param entityIds  IDs of the entities.
+	 * @param propertyId ID of the property.
+	 * @return Statements by entity ID, empty list if the entity has none for the property.
+	 * Entities that could not be loaded are missing from the map.
+	 */
+	public Map<String, List<Statement>> findEntitiesPropertyValues(Collection<String> entityIds, String propertyId) {
 		PropertyIdValue propertyIdValue = Datamodel.makeWikidataPropertyIdValue(propertyId);
 
 		WikibaseDataFetcher fetcher = new WikibaseDataFetcher(wikidataApiConnection, Datamodel.SITE_WIKIDATA);
@@ -31,22 +72,30 @@ public class WikidataService {
 		fetcher.getFilter().excludeAllSiteLinks();
 		fetcher.getFilter().setPropertyFilter(Set.of(propertyIdValue));
 
-		EntityDocument entityDocument;
-		try {
-			entityDocument = fetcher.getEntityDocument(entityId);
-		} catch (MediaWikiApiErrorException | IOException e) {
-			LOGGER.error("Could not fetch document: '{}'.", entityId, e);
-			return Optional.empty();
-		}
-		if (!(entityDocument instanceof ItemDocument)) {
-			LOGGER.warn("Unexpected document: '{}'.", entityDocument);
-			return Optional.empty();
-		}
+		Map<String, List<Statement>> statementsByEntityId = new HashMap<>(entityIds.size());
+		List<String> remainingEntityIds = List.copyOf(entityIds);
+		for (int i = 0; i < remainingEntityIds.size(); i += MAX_BATCH_SIZE) {
+			List<String> batch = remainingEntityIds.subList(i, Math.min(i + MAX_BATCH_SIZE, remainingEntityIds.size()));
+
+			Map<String, EntityDocument> entityDocuments;
+			try {
+				entityDocuments = fetcher.getEntityDocuments(batch);
+			} catch (MediaWikiApiErrorException | IOException e) {
+				LOGGER.error("Could not fetch documents: '{}'.", batch, e);
+				continue;
+			}
+			LOGGER.trace("Fetched {} documents with one request.", batch.size());
+
+			entityDocuments.forEach((entityId, entityDocument) -> {
+				if (!(entityDocument instanceof ItemDocument)) {
+					LOGGER.warn("Unexpected document: '{}'.", entityDocument);
+					return;
+				}
 
-		StatementGroup statementGroup = ((StatementDocument) entityDocument).findStatementGroup(propertyIdValue);
-		if (statementGroup == null) {
-			return Optional.empty();
+				StatementGroup statementGroup = ((StatementDocument) entityDocument).findStatementGroup(propertyIdValue);
+				statementsByEntityId.put(entityId, statementGroup == null ? List.of() : statementGroup.getStatements());
+			});
 		}
-		return Optional.of(statementGroup.getStatements());
+		return statementsByEntityId;
 	}
 }
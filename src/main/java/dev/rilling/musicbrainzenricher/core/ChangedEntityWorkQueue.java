@@ -0,0 +1,66 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams the entities whose URL relationships changed in a time range page by page, ordered by their row ID.
+ * <p>
+ * Unlike {@link WorkQueueCursor}, this includes entities that were already checked, as their new relationships may
+ * lead to new results. The position is not persisted, an interrupted run starts over with the same time range.
+ */
+@NotThreadSafe
+public class ChangedEntityWorkQueue extends PagedWorkQueue<WorkQueueEntry> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChangedEntityWorkQueue.class);
+
+	private final WorkQueueRepository workQueueRepository;
+	private final Instant since;
+	private final Instant until;
+	private final int pageSize;
+
+	private long lastId = 0;
+
+	/**
+	 * @param workQueueRepository Repository of the work queue to stream.
+	 * @param since               Start of the time range (exclusive).
+	 * @param until               End of the time range (inclusive).
+	 * @param pageSize            Number of entities to fetch per query.
+	 * @param pageListener        Called with the MBIDs of each page before they are handed out.
+	 */
+	public ChangedEntityWorkQueue(WorkQueueRepository workQueueRepository,
+								  Instant since,
+								  Instant until,
+								  int pageSize,
+								  Consumer<List<UUID>> pageListener) {
+		super(pageSize, pageListener);
+		this.workQueueRepository = workQueueRepository;
+		this.since = since;
+		this.until = until;
+		this.pageSize = pageSize;
+
+		LOGGER.info("Processing {} entities changed between {} and {}.", workQueueRepository.getDataType(), since, until);
+	}
+
+	@Override
+	protected List<WorkQueueEntry> fetchPage() {
+		List<WorkQueueEntry> entries = workQueueRepository.queryChangedEntities(since, until, lastId, pageSize);
+		if (entries.isEmpty()) {
+			LOGGER.debug("Reached end of changed {} entities.", workQueueRepository.getDataType());
+		} else {
+			lastId = entries.getLast().id();
+		}
+		return entries;
+	}
+
+	@Override
+	protected UUID getMbid(WorkQueueEntry entry) {
+		return entry.mbid();
+	}
+}
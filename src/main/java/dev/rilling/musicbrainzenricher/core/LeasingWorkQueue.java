@@ -0,0 +1,161 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Streams the entities of a work queue chunk by chunk, where chunks are leased from {@link WorkLeaseService} so that
+ * multiple nodes can process the same work queue without processing entities twice.
+ * <p>
+ * Within a chunk, entities are fetched page by page ordered by their row ID. A chunk is only completed once all of its
+ * entities were handed out, processing of each of them was reported by {@link #completed(UUID)} and the history of
+ * them was persisted. Chunks that are not completed when the work queue is closed are released for other nodes.
+ * <p>
+ * Apart from {@link #completed(UUID)}, which may be called from any thread, this class is not thread-safe.
+ */
+@NotThreadSafe
+public class LeasingWorkQueue extends PagedWorkQueue<WorkQueueEntry> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LeasingWorkQueue.class);
+
+	private final WorkQueueRepository workQueueRepository;
+	private final WorkLeaseService workLeaseService;
+	private final int pageSize;
+	private final BooleanSupplier historyFlusher;
+
+	// Reported from enrichment threads, applied to the chunk progress when handing out the next entity or on close.
+	private final Queue<UUID> completedMbids = new ConcurrentLinkedQueue<>();
+	private final Map<UUID, ChunkProgress> outstandingMbids = new HashMap<>();
+	// In the order the chunks were claimed.
+	private final Deque<ChunkProgress> chunks = new ArrayDeque<>();
+	private ChunkProgress currentChunk = null;
+	private long lastId;
+
+	/**
+	 * @param workQueueRepository Repository of the work queue to stream.
+	 * @param workLeaseService    Service to lease chunks from.
+	 * @param pageSize            Number of entities to fetch per query.
+	 * @param historyFlusher      Persists pending history entries before chunks are completed, returning if all of
+	 *                            them could be persisted.
+	 * @param pageListener        Called with the MBIDs of each page before they are handed out.
+	 */
+	public LeasingWorkQueue(WorkQueueRepository workQueueRepository,
+							WorkLeaseService workLeaseService,
+							int pageSize,
+							BooleanSupplier historyFlusher,
+							Consumer<List<UUID>> pageListener) {
+		super(pageSize, pageListener);
+		this.workQueueRepository = workQueueRepository;
+		this.workLeaseService = workLeaseService;
+		this.pageSize = pageSize;
+		this.historyFlusher = historyFlusher;
+
+		workLeaseService.prepare(workQueueRepository);
+	}
+
+	@Override
+	protected void handedOut(WorkQueueEntry entry) {
+		completeFinishedChunks();
+	}
+
+	@Override
+	protected UUID getMbid(WorkQueueEntry entry) {
+		return entry.mbid();
+	}
+
+	@Override
+	public void completed(UUID mbid) {
+		completedMbids.add(mbid);
+	}
+
+	@Override
+	public void close() {
+		completeFinishedChunks();
+		// Remaining chunks were either not fully handed out, or some of their entities were not processed.
+		chunks.forEach(chunk -> workLeaseService.release(chunk.workChunk));
+		chunks.clear();
+		outstandingMbids.clear();
+		currentChunk = null;
+	}
+
+	private void completeFinishedChunks() {
+		UUID mbid;
+		while ((mbid = completedMbids.poll()) != null) {
+			ChunkProgress chunk = outstandingMbids.remove(mbid);
+			if (chunk != null) {
+				chunk.outstanding--;
+			}
+		}
+
+		if (chunks.stream().noneMatch(ChunkProgress::isFinished)) {
+			return;
+		}
+		// Otherwise, the chunk could be completed while checks of its entities are lost.
+		if (!historyFlusher.getAsBoolean()) {
+			LOGGER.warn("Could not persist history, not completing finished chunks yet.");
+			return;
+		}
+		chunks.removeIf(chunk -> {
+			if (chunk.isFinished()) {
+				workLeaseService.complete(chunk.workChunk);
+				return true;
+			}
+			return false;
+		});
+	}
+
+	@Override
+	protected List<WorkQueueEntry> fetchPage() {
+		DataType dataType = workQueueRepository.getDataType();
+		while (true) {
+			if (currentChunk == null) {
+				Optional<WorkChunk> claimedChunk = workLeaseService.claim(dataType);
+				if (claimedChunk.isEmpty()) {
+					LOGGER.debug("No unleased chunks of {} work queue remaining.", dataType);
+					return List.of();
+				}
+				currentChunk = new ChunkProgress(claimedChunk.get());
+				chunks.addLast(currentChunk);
+				lastId = currentChunk.workChunk.startId();
+			}
+
+			List<WorkQueueEntry> entries = workQueueRepository.queryWorkQueue(lastId,
+				currentChunk.workChunk.endId(),
+				pageSize);
+			for (WorkQueueEntry entry : entries) {
+				outstandingMbids.put(entry.mbid(), currentChunk);
+			}
+			currentChunk.outstanding += entries.size();
+			if (!entries.isEmpty()) {
+				lastId = entries.getLast().id();
+			}
+			if (entries.size() < pageSize) {
+				currentChunk.fullyFetched = true;
+				currentChunk = null;
+			}
+			if (!entries.isEmpty()) {
+				return entries;
+			}
+		}
+	}
+
+	private static final class ChunkProgress {
+		private final WorkChunk workChunk;
+		private int outstanding = 0;
+		private boolean fullyFetched = false;
+
+		ChunkProgress(WorkChunk workChunk) {
+			this.workChunk = workChunk;
+		}
+
+		boolean isFinished() {
+			return fullyFetched && outstanding == 0;
+		}
+	}
+}
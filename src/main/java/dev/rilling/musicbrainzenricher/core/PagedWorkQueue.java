@@ -0,0 +1,74 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Base class for work queues that fetch their entities page by page. Subclasses only provide the page query, which
+ * continues after the previous page.
+ *
+ * @param <TEntry> Type of the fetched entries.
+ */
+@NotThreadSafe
+abstract class PagedWorkQueue<TEntry> implements WorkQueue {
+
+	private final Consumer<List<UUID>> pageListener;
+
+	private final Deque<TEntry> page;
+	private boolean exhausted = false;
+
+	/**
+	 * @param pageSize     Number of entities to fetch per query.
+	 * @param pageListener Called with the MBIDs of each page before they are handed out.
+	 */
+	protected PagedWorkQueue(int pageSize, Consumer<List<UUID>> pageListener) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be at least 1.");
+		}
+		this.pageListener = pageListener;
+		page = new ArrayDeque<>(pageSize);
+	}
+
+	@Override
+	public final boolean hasNext() {
+		if (page.isEmpty() && !exhausted) {
+			List<TEntry> entries = fetchPage();
+			if (entries.isEmpty()) {
+				exhausted = true;
+			} else {
+				page.addAll(entries);
+				pageListener.accept(entries.stream().map(this::getMbid).toList());
+			}
+		}
+		return !page.isEmpty();
+	}
+
+	@Override
+	public final UUID next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		TEntry entry = page.removeFirst();
+		handedOut(entry);
+		return getMbid(entry);
+	}
+
+	/**
+	 * Fetches the page following the previously fetched one.
+	 *
+	 * @return Entries of the next page, or an empty list if the end of the work queue was reached.
+	 */
+	protected abstract List<TEntry> fetchPage();
+
+	protected abstract UUID getMbid(TEntry entry);
+
+	/**
+	 * Called when an entry is handed out.
+	 *
+	 * @param entry Entry that is handed out.
+	 */
+	protected void handedOut(TEntry entry) {
+	}
+}
@@ -0,0 +1,31 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Describes URL relations that can be enriched, in a form that can be evaluated by the database.
+ *
+ * @param linkType   Name of the musicbrainz link type, e.g. {@code discogs}. Null matches any link type.
+ * @param urlPattern Regular expression the URL has to contain a match of. Must only use syntax that Java and
+ *                   PostgreSQL interpret the same way. Null matches any URL.
+ */
+public record RelationPattern(@Nullable String linkType, @Nullable String urlPattern) {
+
+	public RelationPattern {
+		if (linkType == null && urlPattern == null) {
+			throw new IllegalArgumentException("Either link type or URL pattern must be set.");
+		}
+	}
+
+	public static RelationPattern ofLinkType(String linkType) {
+		return new RelationPattern(linkType, null);
+	}
+
+	public static RelationPattern ofLinkType(String linkType, String urlPattern) {
+		return new RelationPattern(linkType, urlPattern);
+	}
+
+	public static RelationPattern ofUrl(String urlPattern) {
+		return new RelationPattern(null, urlPattern);
+	}
+}
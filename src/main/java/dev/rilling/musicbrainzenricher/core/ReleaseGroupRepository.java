@@ -4,8 +4,9 @@ import net.jcip.annotations.ThreadSafe;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.UUID;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
 
 @Repository
 @ThreadSafe
@@ -18,13 +19,207 @@ public class ReleaseGroupRepository implements WorkQueueRepository {
 	}
 
 	@Override
-	public long countWorkQueue() {
-		return jdbcClient.sql("SELECT COUNT(*) FROM musicbrainz_enricher.release_group_work_queue").query(Long.class).single();
+	public long estimateWorkQueueSize() {
+		// Planner statistics are good enough for progress logging and avoid evaluating the whole queue view.
+		// The work queue consists of the scored entities that were not checked yet. Tables that were never analyzed
+		// have no statistics, which is reported as -1.
+		return jdbcClient.sql("""
+			SELECT GREATEST(
+				GREATEST((SELECT reltuples FROM pg_class WHERE oid = 'musicbrainz_enricher.release_group_work_queue_score'::regclass), 0) -
+				GREATEST((SELECT reltuples FROM pg_class WHERE oid = 'musicbrainz_enricher.release_group_history_entry'::regclass), 0),
+				0)::bigint
+			""").query(Long.class).single();
 	}
 
 	@Override
-	public List<UUID> queryWorkQueue(int limit) {
-		return jdbcClient.sql("SELECT gid FROM musicbrainz_enricher.release_group_work_queue LIMIT ?").param(limit).query(UUID.class).list();
+	public List<ScoredWorkQueueEntry> queryWorkQueue(WorkQueuePosition after, int limit) {
+		return jdbcClient.sql("""
+				SELECT id, gid, score
+				FROM musicbrainz_enricher.release_group_work_queue
+				WHERE (score, id) < (?, ?)
+				ORDER BY score DESC, id DESC
+				LIMIT ?
+				""")
+			.param(after.score())
+			.param(after.id())
+			.param(limit)
+			.query((rs, rowNum) -> new ScoredWorkQueueEntry(rs.getLong("id"),
+				rs.getObject("gid", UUID.class),
+				rs.getDouble("score")))
+			.list();
+	}
+
+	@Override
+	public List<WorkQueueEntry> queryWorkQueue(long afterId, long untilId, int limit) {
+		return jdbcClient.sql("SELECT id, gid FROM musicbrainz_enricher.release_group_work_queue WHERE id > ? AND id <= ? ORDER BY id LIMIT ?")
+			.param(afterId)
+			.param(untilId)
+			.param(limit)
+			.query((rs, rowNum) -> new WorkQueueEntry(rs.getLong("id"), rs.getObject("gid", UUID.class)))
+			.list();
+	}
+
+	@Override
+	public List<WorkQueueEntry> queryChangedEntities(Instant since, Instant until, long afterId, int limit) {
+		return jdbcClient.sql("""
+				SELECT rg.id, rg.gid
+				FROM musicbrainz.release_group rg
+				WHERE rg.id > :afterId
+				  AND rg.id IN (SELECT lrgu.entity0
+								FROM musicbrainz.l_release_group_url lrgu
+								WHERE lrgu.last_updated > :since AND lrgu.last_updated <= :until
+								UNION
+								SELECT lrgu.entity0
+								FROM musicbrainz.l_release_group_url lrgu
+										 JOIN musicbrainz.url u ON lrgu.entity1 = u.id
+								WHERE u.last_updated > :since AND u.last_updated <= :until)
+				ORDER BY rg.id
+				LIMIT :limit
+				""")
+			.param("afterId", afterId)
+			.param("since", Timestamp.from(since))
+			.param("until", Timestamp.from(until))
+			.param("limit", limit)
+			.query((rs, rowNum) -> new WorkQueueEntry(rs.getLong("id"), rs.getObject("gid", UUID.class)))
+			.list();
+	}
+
+	@Override
+	public List<StaleEntityEntry> queryStaleEntities(Instant checkedBefore, Instant afterCheckedAt, long afterId, int limit) {
+		return jdbcClient.sql("""
+				SELECT rg.id, rg.gid, h.checked_at
+				FROM musicbrainz_enricher.release_group_history_entry h
+						 JOIN musicbrainz.release_group rg ON rg.gid = h.release_group_gid
+				WHERE h.checked_at < :checkedBefore
+				  AND (h.checked_at, rg.id) > (:afterCheckedAt, :afterId)
+				ORDER BY h.checked_at, rg.id
+				LIMIT :limit
+				""")
+			.param("checkedBefore", Timestamp.from(checkedBefore))
+			.param("afterCheckedAt", Timestamp.from(afterCheckedAt))
+			.param("afterId", afterId)
+			.param("limit", limit)
+			.query((rs, rowNum) -> new StaleEntityEntry(rs.getLong("id"),
+				rs.getObject("gid", UUID.class),
+				rs.getTimestamp("checked_at").toInstant()))
+			.list();
+	}
+
+	@Override
+	public long findMaxId() {
+		return jdbcClient.sql("""
+			SELECT GREATEST(
+				(SELECT COALESCE(MAX(id), 0) FROM musicbrainz_enricher.release_group_with_relationships),
+				(SELECT COALESCE(MAX(id), 0) FROM musicbrainz_enricher.release_group_with_relationships_delta))
+			""").query(Long.class).single();
+	}
+
+	@Override
+	public int scoreEntities(Collection<RelationPattern> supportedRelations) {
+		if (supportedRelations.isEmpty()) {
+			return 0;
+		}
+		List<Object> params = new ArrayList<>(supportedRelations.size() * 3);
+		int patternId = 0;
+		for (RelationPattern relationPattern : supportedRelations) {
+			params.add(patternId++);
+			params.add(relationPattern.linkType());
+			params.add(relationPattern.urlPattern());
+		}
+		String placeholders = String.join(", ",
+			Collections.nCopies(supportedRelations.size(), "(?, CAST(? AS text), CAST(? AS text))"));
+		// Weights are chosen so that each matched pattern outweighs missing genres, which outweigh popularity.
+		return jdbcClient.sql("""
+				WITH pattern (id, link_type, url_pattern) AS (VALUES %s),
+					 unscored (id) AS (
+						 SELECT id
+						 FROM (SELECT id
+							   FROM musicbrainz_enricher.release_group_with_relationships
+							   UNION ALL
+							   SELECT id
+							   FROM musicbrainz_enricher.release_group_with_relationships_delta) candidate
+						 WHERE id NOT IN (SELECT id FROM musicbrainz_enricher.release_group_work_queue_score)
+						   AND id NOT IN (SELECT id FROM musicbrainz_enricher.release_group_work_queue_unsupported)),
+					 supported (entity, pattern_count) AS (
+						 SELECT l.entity0, count(DISTINCT p.id)
+						 FROM musicbrainz.l_release_group_url l
+								  JOIN musicbrainz.url u ON l.entity1 = u.id
+								  JOIN musicbrainz.link lk ON l.link = lk.id
+								  JOIN musicbrainz.link_type lt ON lk.link_type = lt.id
+								  JOIN pattern p ON (p.link_type IS NULL OR lt.name = p.link_type)
+							 AND (p.url_pattern IS NULL OR u.url ~ p.url_pattern)
+						 WHERE l.entity0 IN (SELECT id FROM unscored)
+						 GROUP BY l.entity0),
+					 unsupported AS (
+						 INSERT INTO musicbrainz_enricher.release_group_work_queue_unsupported (id)
+							 SELECT id FROM unscored WHERE id NOT IN (SELECT entity FROM supported)
+							 ON CONFLICT (id) DO NOTHING)
+				INSERT
+				INTO musicbrainz_enricher.release_group_work_queue_score (id, gid, score)
+				SELECT rg.id,
+					   rg.gid,
+					   10 * s.pattern_count
+						   + CASE
+								 WHEN EXISTS (SELECT 1
+											  FROM musicbrainz.release_group_tag rgt
+													   JOIN musicbrainz.tag t ON rgt.tag = t.id
+													   JOIN musicbrainz.genre g ON t.name = g.name
+											  WHERE rgt.release_group = rg.id) THEN 0
+								 ELSE 5 END
+						   + ln(1 + COALESCE(rgm.rating_count, 0))
+				FROM supported s
+						 JOIN musicbrainz.release_group rg ON s.entity = rg.id
+						 LEFT JOIN musicbrainz.release_group_meta rgm ON rgm.id = rg.id
+				ON CONFLICT (id) DO NOTHING
+				""".formatted(placeholders))
+			.params(params)
+			.update();
+	}
+
+	@Override
+	public int addChangedEntities(Instant since) {
+		// Changed relationships may be supported now, and changed relationships or genre tags change the score.
+		jdbcClient.sql("""
+			WITH changed_relationships (id) AS (
+					 SELECT l.entity0 FROM musicbrainz.l_release_group_url l WHERE l.last_updated > :since
+					 UNION
+					 SELECT l.entity0
+					 FROM musicbrainz.l_release_group_url l
+							  JOIN musicbrainz.url u ON l.entity1 = u.id
+					 WHERE u.last_updated > :since),
+				 unsupported AS (
+					 DELETE FROM musicbrainz_enricher.release_group_work_queue_unsupported
+					 WHERE id IN (SELECT id FROM changed_relationships))
+			DELETE FROM musicbrainz_enricher.release_group_work_queue_score
+			WHERE id IN (SELECT id FROM changed_relationships
+						 UNION
+						 SELECT rgt.release_group FROM musicbrainz.release_group_tag rgt WHERE rgt.last_updated > :since)
+			""").param("since", Timestamp.from(since)).update();
+		return jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.release_group_with_relationships_delta (id, gid)
+			SELECT rg.id, rg.gid
+			FROM musicbrainz.release_group rg
+			WHERE rg.id IN (SELECT l.entity0 FROM musicbrainz.l_release_group_url l WHERE l.last_updated > ?)
+			  AND rg.id NOT IN (SELECT id FROM musicbrainz_enricher.release_group_with_relationships)
+			ON CONFLICT (id) DO NOTHING
+			""").param(Timestamp.from(since)).update();
+	}
+
+	@Override
+	public void refresh() {
+		jdbcClient.sql("REFRESH MATERIALIZED VIEW CONCURRENTLY musicbrainz_enricher.release_group_with_relationships").update();
+		// Everything in the delta is part of the refreshed view now.
+		jdbcClient.sql("""
+			DELETE FROM musicbrainz_enricher.release_group_with_relationships_delta
+			WHERE id IN (SELECT id FROM musicbrainz_enricher.release_group_with_relationships)
+			""").update();
+		jdbcClient.sql("""
+			DELETE FROM musicbrainz_enricher.release_group_work_queue_score
+			WHERE id NOT IN (SELECT id FROM musicbrainz_enricher.release_group_with_relationships)
+			  AND id NOT IN (SELECT id FROM musicbrainz_enricher.release_group_with_relationships_delta)
+			""").update();
+		// Relationships may have changed in any way, so all entities without supported relations are checked again.
+		jdbcClient.sql("TRUNCATE musicbrainz_enricher.release_group_work_queue_unsupported").update();
 	}
 
 	@Override
@@ -0,0 +1,28 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Replication state of the local musicbrainz database.
+ *
+ * @param sequence Sequence number of the last applied replication packet.
+ * @param date     Date of the last applied replication packet.
+ */
+public record ReplicationState(int sequence, Instant date) {
+
+	// Rows carry the time of the original edit rather than the time they were replicated, so rows applied with a
+	// packet may be slightly older than the date of the previous packet.
+	private static final Duration DATE_MARGIN = Duration.ofHours(1);
+
+	/**
+	 * Rows changed before this time are contained in the local database, even if they have not been replicated until
+	 * a later packet. Local database time cannot be used for this, as {@code last_updated} columns are replicated from
+	 * the musicbrainz server.
+	 *
+	 * @return Time up to which changes are complete.
+	 */
+	public Instant completeUntil() {
+		return date.minus(DATE_MARGIN);
+	}
+}
@@ -0,0 +1,17 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import java.util.UUID;
+
+/**
+ * Entry of a work queue ordered by expected yield.
+ *
+ * @param id    Row ID of the entity in the musicbrainz database. Used as key for pagination.
+ * @param mbid  MBID of the entity.
+ * @param score Expected yield of enriching the entity. Used as key for pagination.
+ */
+public record ScoredWorkQueueEntry(long id, UUID mbid, double score) {
+
+	WorkQueuePosition position() {
+		return new WorkQueuePosition(score, id);
+	}
+}
@@ -0,0 +1,14 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity that was checked before.
+ *
+ * @param id        Row ID of the entity in the musicbrainz database. Used as key for pagination.
+ * @param mbid      MBID of the entity.
+ * @param checkedAt When the entity was last checked. Used as key for pagination.
+ */
+public record StaleEntityEntry(long id, UUID mbid, Instant checkedAt) {
+}
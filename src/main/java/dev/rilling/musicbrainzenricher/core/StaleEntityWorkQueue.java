@@ -0,0 +1,69 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams entities that were last checked before a given time page by page, least recently checked first.
+ * <p>
+ * Entities that are checked again while the queue is streamed are not handed out twice, as their new check time is
+ * after the time the queue is limited to. The position is not persisted, an interrupted run starts over with the
+ * entities that are still stale.
+ */
+@NotThreadSafe
+public class StaleEntityWorkQueue extends PagedWorkQueue<StaleEntityEntry> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StaleEntityWorkQueue.class);
+
+	private final WorkQueueRepository workQueueRepository;
+	private final Instant checkedBefore;
+	private final int pageSize;
+
+	private Instant lastCheckedAt = Instant.EPOCH;
+	private long lastId = 0;
+
+	/**
+	 * @param workQueueRepository Repository of the entities to stream.
+	 * @param checkedBefore       Time before which entities must have been checked last to be handed out (exclusive).
+	 * @param pageSize            Number of entities to fetch per query.
+	 * @param pageListener        Called with the MBIDs of each page before they are handed out.
+	 */
+	public StaleEntityWorkQueue(WorkQueueRepository workQueueRepository,
+								Instant checkedBefore,
+								int pageSize,
+								Consumer<List<UUID>> pageListener) {
+		super(pageSize, pageListener);
+		this.workQueueRepository = workQueueRepository;
+		this.checkedBefore = checkedBefore;
+		this.pageSize = pageSize;
+
+		LOGGER.info("Re-enriching {} entities checked before {}.", workQueueRepository.getDataType(), checkedBefore);
+	}
+
+	@Override
+	protected List<StaleEntityEntry> fetchPage() {
+		List<StaleEntityEntry> entries = workQueueRepository.queryStaleEntities(checkedBefore,
+			lastCheckedAt,
+			lastId,
+			pageSize);
+		if (entries.isEmpty()) {
+			LOGGER.debug("Reached end of stale {} entities.", workQueueRepository.getDataType());
+		} else {
+			StaleEntityEntry last = entries.getLast();
+			lastCheckedAt = last.checkedAt();
+			lastId = last.id();
+		}
+		return entries;
+	}
+
+	@Override
+	protected UUID getMbid(StaleEntityEntry entry) {
+		return entry.mbid();
+	}
+}
@@ -0,0 +1,11 @@
+package dev.rilling.musicbrainzenricher.core;
+
+/**
+ * Range of row IDs of a work queue that is leased to one node at a time.
+ *
+ * @param dataType Data type of the work queue.
+ * @param startId  Row ID after which the chunk starts (exclusive).
+ * @param endId    Row ID at which the chunk ends (inclusive).
+ */
+public record WorkChunk(DataType dataType, long startId, long endId) {
+}
@@ -0,0 +1,108 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Stores the {@link WorkChunk}s of work queues and which node has leased them.
+ */
+@Repository
+@ThreadSafe
+public class WorkChunkRepository {
+
+	private final JdbcClient jdbcClient;
+
+	public WorkChunkRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	/**
+	 * Removes all chunks of the data type if every one of them is completed, so that a new pass can start.
+	 */
+	public void deleteAllIfCompleted(DataType dataType) {
+		jdbcClient.sql("""
+			DELETE FROM musicbrainz_enricher.work_chunk
+			WHERE data_type = ?
+			  AND NOT EXISTS (SELECT 1 FROM musicbrainz_enricher.work_chunk WHERE data_type = ? AND completed_at IS NULL)
+			""").param(dataType.name()).param(dataType.name()).update();
+	}
+
+	/**
+	 * Creates chunks of the given size covering all row IDs up to {@code maxId}. Existing chunks are kept.
+	 */
+	public void createChunks(DataType dataType, long maxId, long chunkSize) {
+		jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.work_chunk (data_type, start_id, end_id)
+			SELECT ?, start_id, start_id + ?
+			FROM generate_series(0, ?, ?) AS start_id
+			ON CONFLICT (data_type, start_id) DO NOTHING
+			""").param(dataType.name()).param(chunkSize).param(maxId).param(chunkSize).update();
+	}
+
+	/**
+	 * Leases the first chunk that is neither completed nor leased by a node whose lease is still valid.
+	 * Chunks that are locked by other nodes claiming at the same time are skipped instead of waited for.
+	 */
+	public Optional<WorkChunk> claim(DataType dataType, String nodeId, Duration leaseDuration) {
+		return jdbcClient.sql("""
+				UPDATE musicbrainz_enricher.work_chunk
+				SET node_id = ?, leased_until = now() + ?::interval
+				WHERE (data_type, start_id) = (SELECT data_type, start_id
+											   FROM musicbrainz_enricher.work_chunk
+											   WHERE data_type = ?
+												 AND completed_at IS NULL
+												 AND (leased_until IS NULL OR leased_until < now())
+											   ORDER BY start_id
+											   LIMIT 1 FOR UPDATE SKIP LOCKED)
+				RETURNING start_id, end_id
+				""")
+			.param(nodeId)
+			.param(toInterval(leaseDuration))
+			.param(dataType.name())
+			.query((rs, rowNum) -> new WorkChunk(dataType, rs.getLong("start_id"), rs.getLong("end_id")))
+			.optional();
+	}
+
+	/**
+	 * Extends all leases of the node that are not completed yet.
+	 *
+	 * @return Number of extended leases.
+	 */
+	public int extendLeases(String nodeId, Duration leaseDuration) {
+		return jdbcClient.sql("""
+			UPDATE musicbrainz_enricher.work_chunk
+			SET leased_until = now() + ?::interval
+			WHERE node_id = ? AND completed_at IS NULL
+			""").param(toInterval(leaseDuration)).param(nodeId).update();
+	}
+
+	/**
+	 * @return if the chunk was still leased by the node.
+	 */
+	public boolean complete(WorkChunk workChunk, String nodeId) {
+		return jdbcClient.sql("""
+			UPDATE musicbrainz_enricher.work_chunk
+			SET completed_at = now(), leased_until = NULL
+			WHERE data_type = ? AND start_id = ? AND node_id = ?
+			""").param(workChunk.dataType().name()).param(workChunk.startId()).param(nodeId).update() > 0;
+	}
+
+	/**
+	 * Gives up the lease of a chunk that is not completed, so that other nodes can claim it right away.
+	 */
+	public void release(WorkChunk workChunk, String nodeId) {
+		jdbcClient.sql("""
+			UPDATE musicbrainz_enricher.work_chunk
+			SET node_id = NULL, leased_until = NULL
+			WHERE data_type = ? AND start_id = ? AND node_id = ? AND completed_at IS NULL
+			""").param(workChunk.dataType().name()).param(workChunk.startId()).param(nodeId).update();
+	}
+
+	private static String toInterval(Duration duration) {
+		return "%d milliseconds".formatted(duration.toMillis());
+	}
+}
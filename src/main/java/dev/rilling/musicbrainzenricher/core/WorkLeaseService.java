@@ -0,0 +1,93 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Coordinates multiple nodes processing the same work queue.
+ * <p>
+ * The row IDs of a work queue are split into {@link WorkChunk}s of {@code musicbrainz-enricher.auto-query.leasing.chunk-size}
+ * IDs. Each node claims one chunk at a time. Leases expire after {@code musicbrainz-enricher.auto-query.leasing.lease-duration}
+ * unless they are extended by the heartbeat, so the chunks of crashed nodes are claimed by other nodes eventually.
+ */
+@Service
+@ThreadSafe
+public class WorkLeaseService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkLeaseService.class);
+
+	private final boolean enabled;
+	private final String nodeId;
+	private final long chunkSize;
+	private final Duration leaseDuration;
+
+	private final WorkChunkRepository workChunkRepository;
+
+	WorkLeaseService(Environment environment, WorkChunkRepository workChunkRepository) {
+		this.workChunkRepository = workChunkRepository;
+
+		enabled = environment.getRequiredProperty("musicbrainz-enricher.auto-query.leasing.enabled", Boolean.class);
+		nodeId = environment.getRequiredProperty("musicbrainz-enricher.auto-query.leasing.node-id");
+		chunkSize = environment.getRequiredProperty("musicbrainz-enricher.auto-query.leasing.chunk-size", Long.class);
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1.");
+		}
+		leaseDuration = environment.getRequiredProperty("musicbrainz-enricher.auto-query.leasing.lease-duration",
+			Duration.class);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Creates the chunks of a work queue. If the previous pass over the work queue was completed, a new one is started.
+	 *
+	 * @param workQueueRepository Work queue to create chunks for.
+	 */
+	public void prepare(WorkQueueRepository workQueueRepository) {
+		DataType dataType = workQueueRepository.getDataType();
+		LOGGER.info("Processing {} work queue as node '{}'.", dataType, nodeId);
+		workChunkRepository.deleteAllIfCompleted(dataType);
+		workChunkRepository.createChunks(dataType, workQueueRepository.findMaxId(), chunkSize);
+	}
+
+	public Optional<WorkChunk> claim(DataType dataType) {
+		Optional<WorkChunk> workChunk = workChunkRepository.claim(dataType, nodeId, leaseDuration);
+		workChunk.ifPresent(claimed -> LOGGER.debug("Claimed chunk '{}'.", claimed));
+		return workChunk;
+	}
+
+	public void complete(WorkChunk workChunk) {
+		if (!workChunkRepository.complete(workChunk, nodeId)) {
+			LOGGER.warn("Lease of chunk '{}' was lost before it was completed, it may have been processed twice.",
+				workChunk);
+		}
+	}
+
+	public void release(WorkChunk workChunk) {
+		workChunkRepository.release(workChunk, nodeId);
+	}
+
+	@Scheduled(fixedDelayString = "${musicbrainz-enricher.auto-query.leasing.heartbeat-interval}",
+		initialDelayString = "${musicbrainz-enricher.auto-query.leasing.heartbeat-interval}")
+	void extendLeases() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			int extended = workChunkRepository.extendLeases(nodeId, leaseDuration);
+			LOGGER.trace("Extended {} lease(s).", extended);
+		} catch (DataAccessException e) {
+			LOGGER.error("Could not extend leases, retrying with the next heartbeat.", e);
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import java.util.Iterator;
+import java.util.UUID;
+
+/**
+ * Hands out the MBIDs of entities to enrich in auto-query mode.
+ */
+public interface WorkQueue extends Iterator<UUID>, AutoCloseable {
+
+	/**
+	 * Called once processing of an entity that was handed out finished, regardless of its outcome. May be called from
+	 * any thread.
+	 *
+	 * @param mbid MBID of the entity.
+	 */
+	default void completed(UUID mbid) {
+	}
+
+	/**
+	 * Called once all entities that were handed out have been processed.
+	 */
+	@Override
+	default void close() {
+	}
+}
@@ -0,0 +1,156 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Streams the entities of a work queue page by page, highest score first.
+ * <p>
+ * Instead of repeatedly counting and querying the whole queue, each page continues after the last score and row ID
+ * of the previous page, which allows the database to use an index range scan. The position is persisted so that a restarted
+ * run can resume from there. Because entities may finish in any order, the persisted position is the one of the last
+ * entity before the first entity whose processing was not reported by {@link #completed(UUID)} yet. When resuming,
+ * no unprocessed entity is skipped, while entities that were processed after it are handed out again. The position is
+ * persisted whenever a page is fetched and when the cursor is closed.
+ * Once the end of the queue is reached and all entities were processed, the position is reset so that the next run
+ * starts from the beginning again.
+ * <p>
+ * Apart from {@link #completed(UUID)}, which may be called from any thread, this class is not thread-safe.
+ */
+@NotThreadSafe
+public class WorkQueueCursor extends PagedWorkQueue<ScoredWorkQueueEntry> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkQueueCursor.class);
+
+	private final WorkQueueRepository workQueueRepository;
+	private final WorkQueueCursorRepository workQueueCursorRepository;
+	private final int pageSize;
+
+	// Reported from enrichment threads, applied to the handed out entities when fetching a page or on close.
+	private final Queue<UUID> completedMbids = new ConcurrentLinkedQueue<>();
+	// In the order they were handed out, which is the order of the work queue.
+	private final Deque<HandedOutEntry> handedOutEntries = new ArrayDeque<>();
+	private final Map<UUID, HandedOutEntry> handedOutEntriesByMbid = new HashMap<>();
+	private WorkQueuePosition lastPosition;
+	private WorkQueuePosition processedPosition;
+	private WorkQueuePosition persistedPosition;
+	private boolean reachedEnd = false;
+
+	/**
+	 * @param workQueueRepository       Repository of the work queue to stream.
+	 * @param workQueueCursorRepository Repository to persist the cursor position in.
+	 * @param pageSize                  Number of entities to fetch per query.
+	 */
+	public WorkQueueCursor(WorkQueueRepository workQueueRepository,
+						   WorkQueueCursorRepository workQueueCursorRepository,
+						   int pageSize) {
+		this(workQueueRepository, workQueueCursorRepository, pageSize, ignored -> {
+		});
+	}
+
+	/**
+	 * @param workQueueRepository       Repository of the work queue to stream.
+	 * @param workQueueCursorRepository Repository to persist the cursor position in.
+	 * @param pageSize                  Number of entities to fetch per query.
+	 * @param pageListener              Called with the MBIDs of each page before they are handed out.
+	 */
+	public WorkQueueCursor(WorkQueueRepository workQueueRepository,
+						   WorkQueueCursorRepository workQueueCursorRepository,
+						   int pageSize,
+						   Consumer<List<UUID>> pageListener) {
+		super(pageSize, pageListener);
+		this.workQueueRepository = workQueueRepository;
+		this.workQueueCursorRepository = workQueueCursorRepository;
+		this.pageSize = pageSize;
+
+		lastPosition = workQueueCursorRepository.findPosition(workQueueRepository.getDataType())
+			.orElse(WorkQueuePosition.START);
+		processedPosition = lastPosition;
+		persistedPosition = lastPosition;
+		if (!lastPosition.isStart()) {
+			LOGGER.info("Resuming {} work queue after score {} and row ID {}.",
+				workQueueRepository.getDataType(),
+				lastPosition.score(),
+				lastPosition.id());
+		}
+	}
+
+	@Override
+	protected void handedOut(ScoredWorkQueueEntry entry) {
+		HandedOutEntry handedOutEntry = new HandedOutEntry(entry.position());
+		handedOutEntries.addLast(handedOutEntry);
+		handedOutEntriesByMbid.put(entry.mbid(), handedOutEntry);
+	}
+
+	@Override
+	protected UUID getMbid(ScoredWorkQueueEntry entry) {
+		return entry.mbid();
+	}
+
+	@Override
+	public void completed(UUID mbid) {
+		completedMbids.add(mbid);
+	}
+
+	@Override
+	public void close() {
+		applyCompletions();
+		if (reachedEnd && handedOutEntries.isEmpty()) {
+			workQueueCursorRepository.resetPosition(workQueueRepository.getDataType());
+		} else {
+			savePosition();
+		}
+	}
+
+	@Override
+	protected List<ScoredWorkQueueEntry> fetchPage() {
+		DataType dataType = workQueueRepository.getDataType();
+		applyCompletions();
+		savePosition();
+
+		List<ScoredWorkQueueEntry> entries = workQueueRepository.queryWorkQueue(lastPosition, pageSize);
+		if (entries.isEmpty()) {
+			LOGGER.debug("Reached end of {} work queue.", dataType);
+			reachedEnd = true;
+			return entries;
+		}
+		lastPosition = entries.getLast().position();
+
+		LOGGER.info("About {} auto-query entities remaining.", workQueueRepository.estimateWorkQueueSize());
+		return entries;
+	}
+
+	private void applyCompletions() {
+		UUID mbid;
+		while ((mbid = completedMbids.poll()) != null) {
+			HandedOutEntry handedOutEntry = handedOutEntriesByMbid.remove(mbid);
+			if (handedOutEntry != null) {
+				handedOutEntry.processed = true;
+			}
+		}
+		while (!handedOutEntries.isEmpty() && handedOutEntries.peekFirst().processed) {
+			processedPosition = handedOutEntries.removeFirst().position;
+		}
+	}
+
+	private void savePosition() {
+		if (!processedPosition.equals(persistedPosition)) {
+			workQueueCursorRepository.savePosition(workQueueRepository.getDataType(), processedPosition);
+			persistedPosition = processedPosition;
+		}
+	}
+
+	private static final class HandedOutEntry {
+		private final WorkQueuePosition position;
+		private boolean processed = false;
+
+		HandedOutEntry(WorkQueuePosition position) {
+			this.position = position;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Stores the position of {@link WorkQueueCursor}s so that auto-query mode can resume after a restart.
+ */
+@Repository
+@ThreadSafe
+public class WorkQueueCursorRepository {
+
+	private final JdbcClient jdbcClient;
+
+	public WorkQueueCursorRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	public Optional<WorkQueuePosition> findPosition(DataType dataType) {
+		return jdbcClient.sql("""
+				SELECT last_score, last_id FROM musicbrainz_enricher.work_queue_cursor
+				WHERE data_type = ? AND last_score IS NOT NULL
+				""")
+			.param(dataType.name())
+			.query((rs, rowNum) -> new WorkQueuePosition(rs.getDouble("last_score"), rs.getLong("last_id")))
+			.optional();
+	}
+
+	public void savePosition(DataType dataType, WorkQueuePosition position) {
+		jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.work_queue_cursor (data_type, last_id, last_score) VALUES (?, ?, ?)
+			ON CONFLICT (data_type) DO UPDATE SET last_id = excluded.last_id, last_score = excluded.last_score
+			""").param(dataType.name()).param(position.id()).param(position.score()).update();
+	}
+
+	public void resetPosition(DataType dataType) {
+		jdbcClient.sql("DELETE FROM musicbrainz_enricher.work_queue_cursor WHERE data_type = ?")
+			.param(dataType.name())
+			.update();
+	}
+}
@@ -0,0 +1,12 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import java.util.UUID;
+
+/**
+ * Entry of a work queue.
+ *
+ * @param id   Row ID of the entity in the musicbrainz database. Used as key for pagination.
+ * @param mbid MBID of the entity.
+ */
+public record WorkQueueEntry(long id, UUID mbid) {
+}
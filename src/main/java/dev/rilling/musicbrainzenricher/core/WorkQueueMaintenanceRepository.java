@@ -0,0 +1,62 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * Stores up to which replication state work queues were maintained.
+ */
+@Repository
+@ThreadSafe
+public class WorkQueueMaintenanceRepository {
+
+	private final JdbcClient jdbcClient;
+
+	public WorkQueueMaintenanceRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	/**
+	 * @return Current replication state of the local musicbrainz database, empty if it was never replicated.
+	 */
+	public Optional<ReplicationState> findCurrentReplicationState() {
+		return jdbcClient.sql("""
+				SELECT current_replication_sequence, last_replication_date
+				FROM musicbrainz.replication_control
+				WHERE current_replication_sequence IS NOT NULL AND last_replication_date IS NOT NULL
+				""")
+			.query((rs, rowNum) -> new ReplicationState(rs.getInt("current_replication_sequence"),
+				rs.getTimestamp("last_replication_date").toInstant()))
+			.optional();
+	}
+
+	public Optional<ReplicationState> findMaintainedReplicationState(DataType dataType) {
+		return jdbcClient.sql("""
+				SELECT replication_sequence, replication_date
+				FROM musicbrainz_enricher.work_queue_maintenance
+				WHERE data_type = ?
+				""")
+			.param(dataType.name())
+			.query((rs, rowNum) -> new ReplicationState(rs.getInt("replication_sequence"),
+				rs.getTimestamp("replication_date").toInstant()))
+			.optional();
+	}
+
+	public void saveMaintainedReplicationState(DataType dataType, ReplicationState replicationState) {
+		jdbcClient.sql("""
+				INSERT INTO musicbrainz_enricher.work_queue_maintenance (data_type, replication_sequence, replication_date)
+				VALUES (?, ?, ?)
+				ON CONFLICT (data_type) DO UPDATE SET replication_sequence = excluded.replication_sequence,
+													  replication_date     = excluded.replication_date,
+													  maintained_at        = now()
+				""")
+			.param(dataType.name())
+			.param(replicationState.sequence())
+			.param(Timestamp.from(replicationState.date()))
+			.update();
+	}
+}
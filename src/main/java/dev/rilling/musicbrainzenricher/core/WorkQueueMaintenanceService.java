@@ -0,0 +1,79 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Keeps work queues up to date with the replicated musicbrainz database.
+ * <p>
+ * Work queues are based on materialized views, which do not change when the database is replicated. Depending on
+ * {@code musicbrainz-enricher.database.work-queue-maintenance}, they are either kept as they are ({@code none}),
+ * extended by the entities whose relationships changed since the last maintenance ({@code incremental}), or rebuilt
+ * without blocking readers ({@code refresh}). Incremental maintenance does not remove entities that lost their
+ * relationships, and falls back to a refresh if the work queue was never maintained before.
+ */
+@Service
+@ThreadSafe
+public class WorkQueueMaintenanceService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkQueueMaintenanceService.class);
+
+	public enum MaintenanceMode {
+		NONE, INCREMENTAL, REFRESH
+	}
+
+	private final MaintenanceMode maintenanceMode;
+
+	private final WorkQueueMaintenanceRepository workQueueMaintenanceRepository;
+
+	WorkQueueMaintenanceService(Environment environment,
+								WorkQueueMaintenanceRepository workQueueMaintenanceRepository) {
+		this.workQueueMaintenanceRepository = workQueueMaintenanceRepository;
+
+		maintenanceMode = environment.getRequiredProperty("musicbrainz-enricher.database.work-queue-maintenance",
+			MaintenanceMode.class);
+	}
+
+	/**
+	 * Brings the work queue up to date with the current replication state, if it was replicated since the last time.
+	 *
+	 * @param workQueueRepository Work queue to maintain.
+	 */
+	public void maintain(WorkQueueRepository workQueueRepository) {
+		if (maintenanceMode == MaintenanceMode.NONE) {
+			return;
+		}
+		DataType dataType = workQueueRepository.getDataType();
+		Optional<ReplicationState> currentState = workQueueMaintenanceRepository.findCurrentReplicationState();
+		if (currentState.isEmpty()) {
+			LOGGER.debug("Local database was never replicated, not maintaining {} work queue.", dataType);
+			return;
+		}
+		Optional<ReplicationState> maintainedState = workQueueMaintenanceRepository.findMaintainedReplicationState(
+			dataType);
+		if (maintainedState.isPresent() && maintainedState.get().sequence() >= currentState.get().sequence()) {
+			LOGGER.debug("{} work queue is up to date with replication sequence {}.",
+				dataType,
+				currentState.get().sequence());
+			return;
+		}
+
+		if (maintenanceMode == MaintenanceMode.INCREMENTAL && maintainedState.isPresent()) {
+			LOGGER.info("Adding changes since replication sequence {} to {} work queue.",
+				maintainedState.get().sequence(),
+				dataType);
+			int added = workQueueRepository.addChangedEntities(maintainedState.get().completeUntil());
+			LOGGER.info("Added {} entities to {} work queue.", added, dataType);
+		} else {
+			LOGGER.info("Refreshing {} work queue, this may take a while.", dataType);
+			workQueueRepository.refresh();
+			LOGGER.info("Refreshed {} work queue.", dataType);
+		}
+		workQueueMaintenanceRepository.saveMaintainedReplicationState(dataType, currentState.get());
+	}
+}
@@ -0,0 +1,19 @@
+package dev.rilling.musicbrainzenricher.core;
+
+/**
+ * Position in a work queue ordered by descending score and row ID.
+ *
+ * @param score Score of the last entry.
+ * @param id    Row ID of the last entry.
+ */
+public record WorkQueuePosition(double score, long id) {
+
+	/**
+	 * Position before all entries.
+	 */
+	public static final WorkQueuePosition START = new WorkQueuePosition(Double.POSITIVE_INFINITY, 0);
+
+	public boolean isStart() {
+		return equals(START);
+	}
+}
@@ -1,10 +1,97 @@
 package dev.rilling.musicbrainzenricher.core;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
 
 public interface WorkQueueRepository extends DataTypeAware {
-	long countWorkQueue();
 
-	List<UUID> queryWorkQueue(int limit);
+	/**
+	 * Estimates the number of entities in the work queue.
+	 * This is based on table statistics rather than a full count and should only be used for progress logging.
+	 *
+	 * @return Estimated number of entities remaining.
+	 */
+	long estimateWorkQueueSize();
+
+	/**
+	 * Queries the next entities of the work queue, highest score first, using keyset pagination.
+	 *
+	 * @param after Position after which to continue (exclusive). Use {@link WorkQueuePosition#START} to start from
+	 *              the beginning.
+	 * @param limit Maximum number of entries to return.
+	 * @return Entries ordered by their score and row ID, both descending.
+	 */
+	List<ScoredWorkQueueEntry> queryWorkQueue(WorkQueuePosition after, int limit);
+
+	/**
+	 * Queries the next entities of the work queue within a range of row IDs using keyset pagination.
+	 *
+	 * @param afterId Row ID after which to continue (exclusive).
+	 * @param untilId Row ID up to which to query (inclusive).
+	 * @param limit   Maximum number of entries to return.
+	 * @return Entries ordered by their row ID.
+	 */
+	List<WorkQueueEntry> queryWorkQueue(long afterId, long untilId, int limit);
+
+	/**
+	 * Queries entities whose URL relationships or related URLs changed in a time range using keyset pagination.
+	 * Unlike the work queue, this includes entities that were already checked.
+	 *
+	 * @param since   Start of the time range (exclusive).
+	 * @param until   End of the time range (inclusive).
+	 * @param afterId Row ID after which to continue (exclusive). Use {@code 0} to start from the beginning.
+	 * @param limit   Maximum number of entries to return.
+	 * @return Entries ordered by their row ID.
+	 */
+	List<WorkQueueEntry> queryChangedEntities(Instant since, Instant until, long afterId, int limit);
+
+	/**
+	 * Queries entities that were checked before the given time, least recently checked first, using keyset
+	 * pagination over the check time and row ID.
+	 *
+	 * @param checkedBefore  Time before which the entities were last checked (exclusive).
+	 * @param afterCheckedAt Check time of the last entry of the previous page. Use {@link Instant#EPOCH} to start from
+	 *                       the beginning.
+	 * @param afterId        Row ID of the last entry of the previous page. Use {@code 0} to start from the beginning.
+	 * @param limit          Maximum number of entries to return.
+	 * @return Entries ordered by their check time and row ID.
+	 */
+	List<StaleEntityEntry> queryStaleEntities(Instant checkedBefore, Instant afterCheckedAt, long afterId, int limit);
+
+	/**
+	 * @return Highest row ID of entities that may be part of the work queue, or {@code 0} if there are none.
+	 */
+	long findMaxId();
+
+	/**
+	 * Scores the entities with relationships that were not evaluated yet by their expected yield. Only entities with
+	 * at least one supported relation are scored, and only scored entities are part of the work queue. Entities
+	 * without a supported relation are remembered, so they are not evaluated again until their relationships change.
+	 * <p>
+	 * The score is mainly based on the number of patterns matched by the entity's URL relationships. Entities whose
+	 * release group has no genre tags yet rank higher, as do release groups with many ratings, which are more likely
+	 * to be covered by other sites.
+	 *
+	 * @param supportedRelations Patterns of relations that are supported by enrichers.
+	 * @return Number of scored entities.
+	 */
+	int scoreEntities(Collection<RelationPattern> supportedRelations);
+
+	/**
+	 * Adds entities whose URL relationships changed since the given time to the work queue, without rebuilding it.
+	 * Entities with changed relationships or genre tags are scored again by the next scoring, including those that had
+	 * no supported relation. Changed rating counts are only picked up once the scores are removed manually.
+	 *
+	 * @param since Time after which relationships changed.
+	 * @return Number of added entities.
+	 */
+	int addChangedEntities(Instant since);
+
+	/**
+	 * Rebuilds the work queue from the current relationships. Does not block reading the work queue while running.
+	 * Scores of entities that lost their relationships are removed, new entities and entities without a supported
+	 * relation need to be scored afterward.
+	 */
+	void refresh();
 }
@@ -0,0 +1,44 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Stores up to which time changed entities were processed in delta mode.
+ */
+@Repository
+@ThreadSafe
+public class WorkQueueWatermarkRepository {
+
+	private final JdbcClient jdbcClient;
+
+	public WorkQueueWatermarkRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	public Optional<Instant> findWatermark(DataType dataType) {
+		return jdbcClient.sql("SELECT last_updated FROM musicbrainz_enricher.work_queue_watermark WHERE data_type = ?")
+			.param(dataType.name())
+			.query((rs, rowNum) -> rs.getTimestamp("last_updated").toInstant())
+			.optional();
+	}
+
+	public void saveWatermark(DataType dataType, Instant lastUpdated) {
+		jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.work_queue_watermark (data_type, last_updated) VALUES (?, ?)
+			ON CONFLICT (data_type) DO UPDATE SET last_updated = excluded.last_updated
+			""").param(dataType.name()).param(Timestamp.from(lastUpdated)).update();
+	}
+
+	/**
+	 * @return Current time of the database, which is also used for the {@code checked_at} columns of the history.
+	 */
+	public Instant findDatabaseTime() {
+		return jdbcClient.sql("SELECT now()").query((rs, rowNum) -> rs.getTimestamp(1).toInstant()).single();
+	}
+}
@@ -0,0 +1,13 @@
+package dev.rilling.musicbrainzenricher.core.genre;
+
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+
+/**
+ * @param wikidataId Wikidata ID of the genre, e.g. {@code Q11399}.
+ * @param genreName  Name of the matching musicbrainz genre, or null if there is none.
+ * @param checkedAt  When the mapping was resolved.
+ */
+public record WikidataGenre(String wikidataId, @Nullable String genreName, Instant checkedAt) {
+}
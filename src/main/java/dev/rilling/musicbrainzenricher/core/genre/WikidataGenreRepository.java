@@ -0,0 +1,40 @@
+package dev.rilling.musicbrainzenricher.core.genre;
+
+import jakarta.annotation.Nullable;
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Stores which musicbrainz genre a wikidata genre maps to, so it does not have to be resolved again.
+ */
+@Repository
+@ThreadSafe
+public class WikidataGenreRepository {
+
+	private final JdbcClient jdbcClient;
+
+	public WikidataGenreRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	public Optional<WikidataGenre> findByWikidataId(String wikidataId) {
+		return jdbcClient.sql("""
+				SELECT wikidata_id, genre_name, checked_at FROM musicbrainz_enricher.wikidata_genre WHERE wikidata_id = ?
+				""")
+			.param(wikidataId)
+			.query((rs, rowNum) -> new WikidataGenre(rs.getString("wikidata_id"),
+				rs.getString("genre_name"),
+				rs.getTimestamp("checked_at").toInstant()))
+			.optional();
+	}
+
+	public void save(String wikidataId, @Nullable String genreName) {
+		jdbcClient.sql("""
+			INSERT INTO musicbrainz_enricher.wikidata_genre (wikidata_id, genre_name) VALUES (?, ?)
+			ON CONFLICT (wikidata_id) DO UPDATE SET genre_name = excluded.genre_name, checked_at = now()
+			""").param(wikidataId).param(genreName).update();
+	}
+}
@@ -0,0 +1,27 @@
+package dev.rilling.musicbrainzenricher.core.history;
+
+/**
+ * Outcome of enriching an entity.
+ */
+public enum EnrichmentOutcome {
+	/**
+	 * New data was found and submitted.
+	 */
+	UPDATED,
+	/**
+	 * No new data was found.
+	 */
+	UNCHANGED,
+	/**
+	 * Some enrichers failed or were skipped, so new data may have been missed.
+	 */
+	INCOMPLETE,
+	/**
+	 * The entity was not enriched because the request budget was used up. The entity should be checked again.
+	 */
+	SKIPPED,
+	/**
+	 * The entity could not be found.
+	 */
+	NOT_FOUND
+}
@@ -2,7 +2,8 @@ package dev.rilling.musicbrainzenricher.core.history;
 
 import dev.rilling.musicbrainzenricher.core.DataType;
 
+import java.time.Instant;
 import java.util.UUID;
 
-record HistoryEntry(DataType dataType, UUID mbid) {
+record HistoryEntry(DataType dataType, UUID mbid, Instant checkedAt, EnrichmentOutcome outcome) {
 }
@@ -1,29 +1,76 @@
 package dev.rilling.musicbrainzenricher.core.history;
 
+import dev.rilling.musicbrainzenricher.core.DataType;
 import net.jcip.annotations.ThreadSafe;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
 @Repository
 @ThreadSafe
 class HistoryEntryRepository {
 
+	// Keeps statements well below the maximum number of bind parameters.
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	private static final String VALUES_PLACEHOLDER = "(CAST(? AS uuid), CAST(? AS timestamptz), ?)";
+
 	private final JdbcClient jdbcClient;
 
 	HistoryEntryRepository(JdbcClient jdbcClient) {
 		this.jdbcClient = jdbcClient;
 	}
 
-	void persist(HistoryEntry historyEntry) {
-		switch (historyEntry.dataType()) {
+	/**
+	 * Persists the entries using one multi-row upsert per data type and batch. Existing entries are updated with the
+	 * new check time and outcome. Entities no longer existing in the musicbrainz database are skipped instead of
+	 * failing the whole batch.
+	 *
+	 * @param historyEntries Entries to persist.
+	 */
+	void persistAll(Collection<HistoryEntry> historyEntries) {
+		// An upsert may not affect the same row twice, so only the latest entry per entity is kept.
+		Map<DataType, Map<UUID, HistoryEntry>> entriesByDataType = historyEntries.stream()
+			.collect(Collectors.groupingBy(HistoryEntry::dataType,
+				() -> new EnumMap<>(DataType.class),
+				Collectors.toMap(HistoryEntry::mbid,
+					historyEntry -> historyEntry,
+					(a, b) -> a.checkedAt().isAfter(b.checkedAt()) ? a : b)));
+
+		entriesByDataType.forEach((dataType, entriesByMbid) -> {
+			List<HistoryEntry> entries = List.copyOf(entriesByMbid.values());
+			for (int i = 0; i < entries.size(); i += MAX_BATCH_SIZE) {
+				persistBatch(dataType, entries.subList(i, Math.min(i + MAX_BATCH_SIZE, entries.size())));
+			}
+		});
+	}
+
+	private void persistBatch(DataType dataType, List<HistoryEntry> entries) {
+		String placeholders = String.join(", ", Collections.nCopies(entries.size(), VALUES_PLACEHOLDER));
+		List<Object> params = new ArrayList<>(entries.size() * 3);
+		for (HistoryEntry entry : entries) {
+			params.add(entry.mbid());
+			params.add(Timestamp.from(entry.checkedAt()));
+			params.add(entry.outcome().name());
+		}
+		switch (dataType) {
 			case RELEASE -> jdbcClient.sql("""
-				INSERT INTO musicbrainz_enricher.release_history_entry (release_gid) VALUES (?)
-				ON CONFLICT (release_gid) DO NOTHING
-				""").param(historyEntry.mbid()).update();
+				INSERT INTO musicbrainz_enricher.release_history_entry (release_gid, checked_at, outcome)
+				SELECT r.gid, v.checked_at, v.outcome
+				FROM (VALUES %s) AS v(gid, checked_at, outcome)
+						 JOIN musicbrainz.release r ON r.gid = v.gid
+				ON CONFLICT (release_gid) DO UPDATE SET checked_at = excluded.checked_at, outcome = excluded.outcome
+				""".formatted(placeholders)).params(params).update();
 			case RELEASE_GROUP -> jdbcClient.sql("""
-				INSERT INTO musicbrainz_enricher.release_group_history_entry (release_group_gid) VALUES (?)
-				ON CONFLICT (release_group_gid) DO NOTHING
-				""").param(historyEntry.mbid()).update();
+				INSERT INTO musicbrainz_enricher.release_group_history_entry (release_group_gid, checked_at, outcome)
+				SELECT rg.gid, v.checked_at, v.outcome
+				FROM (VALUES %s) AS v(gid, checked_at, outcome)
+						 JOIN musicbrainz.release_group rg ON rg.gid = v.gid
+				ON CONFLICT (release_group_gid) DO UPDATE SET checked_at = excluded.checked_at, outcome = excluded.outcome
+				""".formatted(placeholders)).params(params).update();
 		}
 	}
 }
@@ -1,34 +1,175 @@
 package dev.rilling.musicbrainzenricher.core.history;
 
 import dev.rilling.musicbrainzenricher.core.DataType;
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Manages the history of checked entities.
+ * <p>
+ * Entries are buffered and written in batches once {@code musicbrainz-enricher.history.flush-size} entries are
+ * pending, or after {@code musicbrainz-enricher.history.flush-interval} at the latest. If writing fails, the entries
+ * are kept for the next flush, and only the periodic flush retries until writing succeeds again. At most
+ * {@value #MAX_PENDING_FLUSHES} times the flush size entries are kept, older ones are dropped and will be checked again
+ * in the next run. During application shutdown, {@link #flush()} is called to persist remaining entries.
+ */
 @Service
+@ThreadSafe
 public class HistoryService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(HistoryService.class);
 
+	private static final int MAX_PENDING_FLUSHES = 100;
+
 	private final boolean dryRun;
+	private final int flushSize;
+	private final int maxPending;
 
 	private final HistoryEntryRepository historyEntryRepository;
 
+	private final Queue<HistoryEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+	// Tracked separately, as ConcurrentLinkedQueue#size is not constant-time.
+	private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+	private final Lock flushLock = new ReentrantLock();
+
+	// Set while the last flush failed, to avoid retrying with every new entry.
+	private volatile boolean backingOff = false;
+
 	HistoryService(Environment environment, HistoryEntryRepository historyEntryRepository) {
 		this.historyEntryRepository = historyEntryRepository;
 
 		dryRun = environment.getRequiredProperty("musicbrainz-enricher.dry-run", Boolean.class);
+		flushSize = environment.getRequiredProperty("musicbrainz-enricher.history.flush-size", Integer.class);
+		maxPending = flushSize * MAX_PENDING_FLUSHES;
 	}
 
-	public void markAsChecked(DataType dataType, UUID mbid) {
+	public void markAsChecked(DataType dataType, UUID mbid, EnrichmentOutcome outcome) {
 		if (dryRun) {
 			return;
 		}
 
-		HistoryEntry historyEntry = new HistoryEntry(dataType, mbid);
-		LOGGER.trace("Persisting history entry: '{}'.", historyEntry);
-		historyEntryRepository.persist(historyEntry);
+		HistoryEntry historyEntry = new HistoryEntry(dataType, mbid, Instant.now(), outcome);
+		LOGGER.trace("Queueing history entry: '{}'.", historyEntry);
+		pendingEntries.add(historyEntry);
+
+		// If another thread is already flushing, it or the next flush will pick up this entry.
+		if (pendingCount.incrementAndGet() >= flushSize && !backingOff && flushLock.tryLock()) {
+			try {
+				doFlush();
+			} finally {
+				flushLock.unlock();
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${musicbrainz-enricher.history.flush-interval}",
+		initialDelayString = "${musicbrainz-enricher.history.flush-interval}")
+	void flushPeriodically() {
+		if (flushLock.tryLock()) {
+			try {
+				doFlush();
+			} finally {
+				flushLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Persists all pending entries, waiting for a flush that is already running. If the last flush failed, nothing is
+	 * persisted until the periodic flush succeeds.
+	 *
+	 * @return If all pending entries could be persisted.
+	 */
+	public boolean persistPending() {
+		if (backingOff) {
+			return pendingCount.get() == 0;
+		}
+		flushLock.lock();
+		try {
+			return doFlush();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Persists all pending entries.
+	 */
+	@PreDestroy
+	public void flush() {
+		LOGGER.debug("Flushing history entries.");
+		flushLock.lock();
+		try {
+			if (!doFlush()) {
+				List<HistoryEntry> lostEntries = List.copyOf(pendingEntries);
+				LOGGER.error("Could not persist {} history entries. If not persisted later, they will be checked again in the next run: {}.",
+					lostEntries.size(),
+					lostEntries);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+		LOGGER.debug("Flushed history entries.");
+	}
+
+	/**
+	 * @return if all taken entries could be persisted.
+	 */
+	@GuardedBy("flushLock")
+	private boolean doFlush() {
+		List<HistoryEntry> entries = new ArrayList<>(Math.max(pendingCount.get(), 0));
+		HistoryEntry entry;
+		while ((entry = pendingEntries.poll()) != null) {
+			entries.add(entry);
+		}
+		if (entries.isEmpty()) {
+			return true;
+		}
+		pendingCount.addAndGet(-entries.size());
+
+		try {
+			historyEntryRepository.persistAll(entries);
+			LOGGER.debug("Persisted {} history entries.", entries.size());
+			backingOff = false;
+			return true;
+		} catch (DataAccessException e) {
+			LOGGER.error("Could not persist {} history entries, retrying with the next periodic flush.",
+				entries.size(),
+				e);
+			backingOff = true;
+			requeue(entries);
+			return false;
+		}
+	}
+
+	@GuardedBy("flushLock")
+	private void requeue(List<HistoryEntry> entries) {
+		// Entries added since taking them are newer, so the taken ones are dropped first.
+		int dropped = Math.min(Math.max(pendingCount.get() + entries.size() - maxPending, 0), entries.size());
+		if (dropped > 0) {
+			LOGGER.error("Dropping {} history entries, as too many are pending. They will be checked again in the next run: {}.",
+				dropped,
+				entries.subList(0, dropped));
+		}
+		List<HistoryEntry> kept = entries.subList(dropped, entries.size());
+		pendingEntries.addAll(kept);
+		pendingCount.addAndGet(kept.size());
 	}
 }
@@ -1,6 +1,7 @@
 package dev.rilling.musicbrainzenricher.enrichment;
 
 import dev.rilling.musicbrainzenricher.core.DataTypeAware;
+import dev.rilling.musicbrainzenricher.core.history.EnrichmentOutcome;
 import org.musicbrainz.model.RelationWs2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,54 +16,174 @@ public abstract class AbstractEnrichmentService<TEntity, UResult> implements Dat
 	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractEnrichmentService.class);
 
 	private final ApplicationContext applicationContext;
-	private final CompletionService<UResult> completionService;
+	private final ExecutorService executorService;
+	private final GenreMemo genreMemo;
+	private final EnrichmentResultStore enrichmentResultStore;
 
-	protected AbstractEnrichmentService(ApplicationContext applicationContext, ExecutorService executorService) {
+	private final Map<UUID, TEntity> prefetchedEntities = new ConcurrentHashMap<>();
+
+	protected AbstractEnrichmentService(ApplicationContext applicationContext,
+										ExecutorService executorService,
+										GenreMemo genreMemo,
+										EnrichmentResultStore enrichmentResultStore) {
 		this.applicationContext = applicationContext;
-		completionService = new ExecutorCompletionService<>(executorService);
+		this.executorService = executorService;
+		this.genreMemo = genreMemo;
+		this.enrichmentResultStore = enrichmentResultStore;
+	}
+
+	/**
+	 * Loads entities that are going to be enriched soon in a single batch.
+	 * Entities that cannot be loaded this way will be fetched individually during enrichment.
+	 *
+	 * @param mbids MBIDs of the entities.
+	 */
+	public void prefetch(Collection<UUID> mbids) {
+		Map<UUID, TEntity> entities = fetchEntities(mbids);
+		LOGGER.debug("Prefetched {} of {} entities for the data type '{}'.", entities.size(), mbids.size(), getDataType());
+		prefetchedEntities.putAll(entities);
+	}
+
+	/**
+	 * Discards prefetched entities that were not enriched, e.g. because processing stopped early.
+	 * Entities enriched afterward are fetched individually.
+	 */
+	public void discardPrefetched() {
+		if (!prefetchedEntities.isEmpty()) {
+			LOGGER.debug("Discarding {} prefetched entities for the data type '{}'.",
+				prefetchedEntities.size(),
+				getDataType());
+			prefetchedEntities.clear();
+		}
 	}
 
-	// TODO check if async handling can be simplified
-	public void executeEnrichment(UUID mbid) {
-		Optional<TEntity> entityOptional = fetchEntity(mbid);
+	/**
+	 * Enriches a single entity. May be called concurrently for different entities.
+	 *
+	 * @param mbid MBID of the entity.
+	 * @return Outcome of the enrichment.
+	 */
+	public EnrichmentOutcome executeEnrichment(UUID mbid) {
+		return executeEnrichment(mbid, RequestBudget.unlimited());
+	}
+
+	/**
+	 * Enriches a single entity, unless the budget does not suffice for all of its relations.
+	 * May be called concurrently for different entities.
+	 *
+	 * @param mbid   MBID of the entity.
+	 * @param budget Budget to take a request from for each enriched relation.
+	 * @return Outcome of the enrichment.
+	 */
+	public EnrichmentOutcome executeEnrichment(UUID mbid, RequestBudget budget) {
+		Optional<TEntity> entityOptional = findEntity(mbid);
 		if (entityOptional.isEmpty()) {
 			LOGGER.warn("Could not find '{}' for the data type '{}'.", mbid, getDataType());
-			return;
+			return EnrichmentOutcome.NOT_FOUND;
 		}
 		TEntity entity = entityOptional.get();
 
 		Set<Enricher> enrichers = findFittingEnrichers();
 		Collection<RelationWs2> relations = extractRelations(entity);
-		Set<Future<UResult>> futures = new HashSet<>(enrichers.size() * relations.size());
+		List<Map.Entry<Enricher, RelationWs2>> enrichments = new ArrayList<>(relations.size());
+		List<RelationWs2> requestedRelations = new ArrayList<>(relations.size());
 		for (RelationWs2 relation : relations) {
 			for (Enricher enricher : enrichers) {
 				if (enricher.isRelationSupported(relation)) {
-					futures.add(completionService.submit(() -> enrich(entity, relation, enricher)));
+					enrichments.add(Map.entry(enricher, relation));
+					if (!budget.isUnlimited() && needsRequest(enricher, relation)) {
+						requestedRelations.add(relation);
+					}
 				}
 			}
 		}
+		// Enriching only some relations would merge a subset of the results, which may lead to different tags than
+		// enriching all of them.
+		if (!budget.tryAcquireAll(requestedRelations)) {
+			LOGGER.debug("Budget exhausted, skipping '{}' for the data type '{}'.", mbid, getDataType());
+			return EnrichmentOutcome.SKIPPED;
+		}
+
+		// Futures are tracked per invocation, as multiple entities may be enriched at the same time.
+		List<Future<UResult>> futures = new ArrayList<>(enrichments.size());
+		for (Map.Entry<Enricher, RelationWs2> enrichment : enrichments) {
+			futures.add(executorService.submit(() -> enrich(entity, enrichment.getValue(), enrichment.getKey())));
+		}
 
 		Set<UResult> results = new HashSet<>(futures.size());
-		int received = 0;
-		while (received < futures.size()) {
+		boolean failed = false;
+		for (Future<UResult> future : futures) {
 			try {
-				UResult result = completionService.take().get(); // Blocks if none available
-				results.add(result);
-				received++;
+				results.add(future.get());
 			} catch (InterruptedException e) {
 				LOGGER.warn("Interrupted, skipping enrichment.", e);
+				futures.forEach(pending -> pending.cancel(true));
 				Thread.currentThread().interrupt();
-				return;
+				return EnrichmentOutcome.INCOMPLETE;
 			} catch (ExecutionException e) {
-				LOGGER.error("Execution of enricher failed.", e);
-				received++;
+				if (e.getCause() instanceof GenreLookupFailedException) {
+					LOGGER.warn("Execution of enricher failed: {}", e.getCause().getMessage());
+				} else {
+					LOGGER.error("Execution of enricher failed.", e);
+				}
+				failed = true;
 			}
 		}
 
-		updateEntity(entity, mergeResults(results));
+		boolean updated = updateEntity(entity, mergeResults(results));
+		if (updated) {
+			return EnrichmentOutcome.UPDATED;
+		}
+		return failed ? EnrichmentOutcome.INCOMPLETE : EnrichmentOutcome.UNCHANGED;
 	}
 
 
+	/**
+	 * Fetches the genres of a relation, reusing the result if the enricher already looked up the same URL during this
+	 * run, or recently enough in an earlier one.
+	 * <p>
+	 * If the relation target could not be loaded, the execution of the enricher fails, so that the entity is not
+	 * considered unchanged.
+	 *
+	 * @param genreEnricher Enricher to fetch genres with.
+	 * @param relation      Relation to fetch genres for.
+	 * @return Genres of the relation target.
+	 */
+	protected Set<String> fetchGenres(GenreEnricher genreEnricher, RelationWs2 relation) {
+		GenreLookup genreLookup = genreMemo.fetchGenres(genreEnricher,
+			relation,
+			() -> enrichmentResultStore.fetchGenres(genreEnricher, relation));
+		if (genreLookup.status() == GenreLookup.Status.ERROR) {
+			throw new GenreLookupFailedException("Could not look up genres of '%s' with %s.".formatted(relation.getTargetId(),
+				genreEnricher.getClass().getSimpleName()));
+		}
+		return genreLookup.genres();
+	}
+
+	/**
+	 * @return If enriching the relation needs a request, as opposed to the genres of the relation already being known.
+	 */
+	private boolean needsRequest(Enricher enricher, RelationWs2 relation) {
+		// The result may expire before it is used, in which case a single request is made without budget.
+		return !(enricher instanceof GenreEnricher genreEnricher && (genreMemo.contains(genreEnricher, relation) ||
+			enrichmentResultStore.containsFresh(genreEnricher, relation)));
+	}
+
+	/**
+	 * Fetches entities in a batch, e.g. from the local database.
+	 *
+	 * @param mbids MBIDs of the entities.
+	 * @return Entities by MBID. Entities that could not be fetched this way are missing.
+	 */
+	protected abstract Map<UUID, TEntity> fetchEntities(Collection<UUID> mbids);
+
+	/**
+	 * Fetches a single entity, e.g. from the API. Used as fallback if {@link #fetchEntities(Collection)} did not
+	 * return the entity.
+	 *
+	 * @param mbid MBID of the entity.
+	 * @return Entity, or empty if it does not exist.
+	 */
 	protected abstract Optional<TEntity> fetchEntity(UUID mbid);
 
 
@@ -76,8 +197,27 @@ public abstract class AbstractEnrichmentService<TEntity, UResult> implements Dat
 
 	protected abstract UResult mergeResults(Collection<UResult> results);
 
-	protected abstract void updateEntity(TEntity entity, UResult result);
+	/**
+	 * Submits the result for the entity.
+	 *
+	 * @param entity Entity that was enriched.
+	 * @param result Merged result of all enrichers.
+	 * @return If anything was submitted.
+	 */
+	protected abstract boolean updateEntity(TEntity entity, UResult result);
+
 
+	private Optional<TEntity> findEntity(UUID mbid) {
+		TEntity entity = prefetchedEntities.remove(mbid);
+		if (entity == null) {
+			entity = fetchEntities(Set.of(mbid)).get(mbid);
+		}
+		if (entity == null) {
+			LOGGER.debug("Falling back to fetching '{}' for the data type '{}' individually.", mbid, getDataType());
+			return fetchEntity(mbid);
+		}
+		return Optional.of(entity);
+	}
 
 	private Set<Enricher> findFittingEnrichers() {
 		return applicationContext.getBeansOfType(Enricher.class)
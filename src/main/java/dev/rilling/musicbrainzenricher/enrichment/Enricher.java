@@ -1,9 +1,12 @@
 package dev.rilling.musicbrainzenricher.enrichment;
 
 import dev.rilling.musicbrainzenricher.core.DataTypeAware;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import org.musicbrainz.model.RelationWs2;
 import org.springframework.stereotype.Component;
 
+import java.util.Set;
+
 /**
  * An enricher is a component takes a relation ({@link RelationWs2}) of a Musicbrainz entity
  * and calculates additional data based on it. Sub-interfaces should specify additional methods which
@@ -21,4 +24,13 @@ public interface Enricher extends DataTypeAware {
 	 */
 	boolean isRelationSupported(RelationWs2 relation);
 
+	/**
+	 * Describes the relations this enricher supports, so that the work queue can be limited to entities with at
+	 * least one of them. Should match the relations accepted by {@link #isRelationSupported(RelationWs2)}, which
+	 * still decides which relations are used.
+	 *
+	 * @return Patterns of supported relations.
+	 */
+	Set<RelationPattern> getSupportedRelations();
+
 }
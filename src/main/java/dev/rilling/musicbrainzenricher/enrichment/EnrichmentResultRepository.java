@@ -0,0 +1,67 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import net.jcip.annotations.ThreadSafe;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores the genre lookups of relation targets, so they do not have to be looked up again.
+ */
+@Repository
+@ThreadSafe
+class EnrichmentResultRepository {
+
+	private final JdbcClient jdbcClient;
+
+	EnrichmentResultRepository(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+
+	public Optional<EnrichmentResult> find(String enricher, String targetUrl) {
+		return jdbcClient.sql("""
+				SELECT status, tags, genres, fetched_at FROM musicbrainz_enricher.enrichment_result
+				WHERE enricher = ? AND target_url = ?
+				""")
+			.param(enricher)
+			.param(targetUrl)
+			.query((rs, rowNum) -> new EnrichmentResult(new GenreLookup(GenreLookup.Status.valueOf(rs.getString(
+				"status")), toSet(rs.getArray("tags")), toSet(rs.getArray("genres"))),
+				rs.getTimestamp("fetched_at").toInstant()))
+			.optional();
+	}
+
+	public void save(String enricher, String targetUrl, GenreLookup genreLookup) {
+		jdbcClient.sql("""
+				INSERT INTO musicbrainz_enricher.enrichment_result (enricher, target_url, status, tags, genres)
+				VALUES (?, ?, ?, ?, ?)
+				ON CONFLICT (enricher, target_url) DO UPDATE SET status     = excluded.status,
+																 tags       = excluded.tags,
+																 genres     = excluded.genres,
+																 fetched_at = now()
+				""")
+			.param(enricher)
+			.param(targetUrl)
+			.param(genreLookup.status().name())
+			.param(genreLookup.tags().toArray(String[]::new))
+			.param(genreLookup.genres().toArray(String[]::new))
+			.update();
+	}
+
+	private static Set<String> toSet(Array array) throws SQLException {
+		return Set.copyOf(Arrays.asList((String[]) array.getArray()));
+	}
+
+	/**
+	 * @param genreLookup Stored lookup.
+	 * @param fetchedAt   When the lookup was made.
+	 */
+	record EnrichmentResult(GenreLookup genreLookup, Instant fetchedAt) {
+	}
+}
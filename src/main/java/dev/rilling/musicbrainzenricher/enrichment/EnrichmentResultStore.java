@@ -0,0 +1,159 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import dev.rilling.musicbrainzenricher.enrichment.EnrichmentResultRepository.EnrichmentResult;
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.ThreadSafe;
+import org.musicbrainz.model.RelationWs2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists the genres enrichers found for relation targets across runs, so that targets looked up recently are not
+ * requested again. Results are keyed by {@link GenreLookupKey}.
+ * <p>
+ * Lookups that found genres are reused for {@code musicbrainz-enricher.enrichment-result.ttl}, which can be
+ * overridden per host with {@code musicbrainz-enricher.enrichment-result.host-ttl}. Lookups without genres and failed
+ * lookups are reused for the shorter {@code musicbrainz-enricher.enrichment-result.empty-ttl} and
+ * {@code musicbrainz-enricher.enrichment-result.error-ttl}, so that sources are asked again sooner.
+ */
+@Service
+@ThreadSafe
+public class EnrichmentResultStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EnrichmentResultStore.class);
+
+	private final EnrichmentResultRepository enrichmentResultRepository;
+
+	private final Duration ttl;
+	private final Duration emptyTtl;
+	private final Duration errorTtl;
+	private final Map<String, Duration> hostTtls;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	EnrichmentResultStore(Environment environment, EnrichmentResultRepository enrichmentResultRepository) {
+		this(enrichmentResultRepository,
+			environment.getRequiredProperty("musicbrainz-enricher.enrichment-result.ttl", Duration.class),
+			environment.getRequiredProperty("musicbrainz-enricher.enrichment-result.empty-ttl", Duration.class),
+			environment.getRequiredProperty("musicbrainz-enricher.enrichment-result.error-ttl", Duration.class),
+			Binder.get(environment)
+				.bind("musicbrainz-enricher.enrichment-result.host-ttl", Bindable.mapOf(String.class, Duration.class))
+				.orElse(Map.of()));
+	}
+
+	EnrichmentResultStore(EnrichmentResultRepository enrichmentResultRepository,
+						  Duration ttl,
+						  Duration emptyTtl,
+						  Duration errorTtl,
+						  Map<String, Duration> hostTtls) {
+		this.enrichmentResultRepository = enrichmentResultRepository;
+		this.ttl = ttl;
+		this.emptyTtl = emptyTtl;
+		this.errorTtl = errorTtl;
+		this.hostTtls = Map.copyOf(hostTtls);
+	}
+
+	/**
+	 * Returns the genres the enricher found for the relation target before, if they are still fresh, or fetches and
+	 * stores them.
+	 *
+	 * @param genreEnricher Enricher to fetch genres with.
+	 * @param relation      Relation to fetch genres for.
+	 * @return Genres of the relation target.
+	 */
+	public GenreLookup fetchGenres(GenreEnricher genreEnricher, RelationWs2 relation) {
+		GenreLookupKey key = GenreLookupKey.of(genreEnricher, relation);
+
+		Optional<GenreLookup> storedLookup = findFresh(key, relation);
+		if (storedLookup.isPresent()) {
+			LOGGER.trace("Using stored genres for '{}'.", key);
+			hits.incrementAndGet();
+			return storedLookup.get();
+		}
+
+		misses.incrementAndGet();
+		GenreLookup genreLookup;
+		try {
+			genreLookup = genreEnricher.fetchGenres(relation);
+		} catch (RuntimeException e) {
+			enrichmentResultRepository.save(key.enricher(), key.url(), GenreLookup.failed());
+			throw e;
+		}
+		enrichmentResultRepository.save(key.enricher(), key.url(), genreLookup);
+		return genreLookup;
+	}
+
+	/**
+	 * @param genreEnricher Enricher the genres are fetched with.
+	 * @param relation      Relation to fetch genres for.
+	 * @return If a result for the relation target is stored that is still fresh.
+	 */
+	public boolean containsFresh(GenreEnricher genreEnricher, RelationWs2 relation) {
+		return findFresh(GenreLookupKey.of(genreEnricher, relation), relation).isPresent();
+	}
+
+	private Optional<GenreLookup> findFresh(GenreLookupKey key, RelationWs2 relation) {
+		return enrichmentResultRepository.find(key.enricher(), key.url())
+			.filter(storedResult -> isFresh(relation.getTargetId(), storedResult))
+			.map(EnrichmentResult::genreLookup);
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		long currentHits = getHits();
+		long total = currentHits + getMisses();
+		LOGGER.info("Enrichment result statistics: {} stored result(s) reused of {} lookup(s) ({}%).",
+			currentHits,
+			total,
+			total > 0 ? currentHits * 100 / total : 0);
+	}
+
+	private boolean isFresh(String targetUrl, EnrichmentResult enrichmentResult) {
+		Duration resultTtl = switch (enrichmentResult.genreLookup().status()) {
+			case FOUND -> getTtl(targetUrl);
+			case EMPTY -> emptyTtl;
+			case ERROR -> errorTtl;
+		};
+		return enrichmentResult.fetchedAt().plus(resultTtl).isAfter(Instant.now());
+	}
+
+	private Duration getTtl(String url) {
+		String host;
+		try {
+			host = new URI(url).getHost();
+		} catch (URISyntaxException e) {
+			return ttl;
+		}
+		if (host == null) {
+			return ttl;
+		}
+		// Keys may either be the exact host or a parent domain, e.g. "bandcamp.com" for "foo.bandcamp.com".
+		for (Map.Entry<String, Duration> hostTtl : hostTtls.entrySet()) {
+			if (host.equals(hostTtl.getKey()) || host.endsWith("." + hostTtl.getKey())) {
+				return hostTtl.getValue();
+			}
+		}
+		return ttl;
+	}
+}
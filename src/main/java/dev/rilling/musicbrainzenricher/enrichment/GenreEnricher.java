@@ -4,8 +4,6 @@ import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import org.musicbrainz.model.RelationWs2;
 import org.springframework.stereotype.Component;
 
-import java.util.Set;
-
 /**
  * Enricher with the capability of calculating genre data.
  *
@@ -15,10 +13,10 @@ import java.util.Set;
 public interface GenreEnricher extends Enricher {
 
 	/**
-	 * Returns a set of musicbrainz compatible genre names that belong to the relation target.
+	 * Looks up the musicbrainz compatible genre names that belong to the relation target.
 	 *
 	 * @param relation Relation.
-	 * @return a set of genres.
+	 * @return Genres, together with the tags they were matched from.
 	 */
-	Set<String> fetchGenres(RelationWs2 relation);
+	GenreLookup fetchGenres(RelationWs2 relation);
 }
@@ -0,0 +1,56 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import java.util.Set;
+
+/**
+ * Result of looking up the genres of a relation target.
+ *
+ * @param status Status of the lookup.
+ * @param tags   Tags the source provided, before they were matched to genres.
+ * @param genres Musicbrainz compatible genre names.
+ */
+public record GenreLookup(Status status, Set<String> tags, Set<String> genres) {
+
+	public GenreLookup {
+		tags = Set.copyOf(tags);
+		genres = Set.copyOf(genres);
+	}
+
+	/**
+	 * @param tags   Tags the source provided.
+	 * @param genres Genres the tags were matched to.
+	 * @return Lookup that found genres, or {@link Status#EMPTY} if none of the tags matched.
+	 */
+	public static GenreLookup of(Set<String> tags, Set<String> genres) {
+		return new GenreLookup(genres.isEmpty() ? Status.EMPTY : Status.FOUND, tags, genres);
+	}
+
+	/**
+	 * @return Lookup of a target that has no genres, e.g. because it is not supported or does not exist.
+	 */
+	public static GenreLookup empty() {
+		return new GenreLookup(Status.EMPTY, Set.of(), Set.of());
+	}
+
+	/**
+	 * @return Lookup of a target that could not be loaded.
+	 */
+	public static GenreLookup failed() {
+		return new GenreLookup(Status.ERROR, Set.of(), Set.of());
+	}
+
+	public enum Status {
+		/**
+		 * The target has genres.
+		 */
+		FOUND,
+		/**
+		 * The target was loaded, but has no genres.
+		 */
+		EMPTY,
+		/**
+		 * The target could not be loaded.
+		 */
+		ERROR
+	}
+}
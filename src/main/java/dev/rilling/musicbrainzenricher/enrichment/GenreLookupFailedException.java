@@ -0,0 +1,16 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import java.io.Serial;
+
+/**
+ * Thrown if the genres of a relation target could not be looked up, see {@link GenreLookup.Status#ERROR}.
+ */
+class GenreLookupFailedException extends RuntimeException {
+
+	@Serial
+	private static final long serialVersionUID = -3128074617254082913L;
+
+	GenreLookupFailedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,50 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import org.musicbrainz.model.RelationWs2;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * Identifies the genres an enricher found for a relation target. Shared by {@link GenreMemo} and
+ * {@link EnrichmentResultStore}, so that both treat the same lookups as equal.
+ *
+ * @param enricher Simple class name of the enricher.
+ * @param url      Normalized URL of the relation target, see {@link #normalizeUrl(String)}.
+ */
+record GenreLookupKey(String enricher, String url) {
+
+	static GenreLookupKey of(GenreEnricher genreEnricher, RelationWs2 relation) {
+		return new GenreLookupKey(genreEnricher.getClass().getSimpleName(), normalizeUrl(relation.getTargetId()));
+	}
+
+	/**
+	 * Normalizes a URL so that different spellings of the same resource are treated as equal. The scheme, a trailing
+	 * slash and the fragment are removed, and the host is lower-cased.
+	 */
+	static String normalizeUrl(String url) {
+		String trimmedUrl = url.trim();
+		URI uri;
+		try {
+			uri = new URI(trimmedUrl);
+		} catch (URISyntaxException e) {
+			return trimmedUrl;
+		}
+		if (uri.getHost() == null) {
+			return trimmedUrl;
+		}
+		StringBuilder normalizedUrl = new StringBuilder(uri.getHost().toLowerCase(Locale.ROOT));
+		if (uri.getPort() != -1) {
+			normalizedUrl.append(':').append(uri.getPort());
+		}
+		String path = uri.getRawPath();
+		if (path != null) {
+			normalizedUrl.append(path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+		}
+		if (uri.getRawQuery() != null) {
+			normalizedUrl.append('?').append(uri.getRawQuery());
+		}
+		return normalizedUrl.toString();
+	}
+}
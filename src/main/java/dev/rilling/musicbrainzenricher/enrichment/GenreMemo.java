@@ -0,0 +1,116 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import jakarta.annotation.PreDestroy;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.musicbrainz.model.RelationWs2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the genres enrichers found for relation targets during a run, as the same URL is often linked from
+ * several entities, e.g. a discogs master from multiple release groups.
+ * <p>
+ * Entries are keyed by {@link GenreLookupKey}, and the least recently used ones are removed once more than
+ * {@code musicbrainz-enricher.genre-memo.max-size} are stored. Failed lookups are not remembered.
+ */
+@Service
+@ThreadSafe
+public class GenreMemo {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GenreMemo.class);
+
+	private final int maxSize;
+
+	@GuardedBy("entries")
+	private final LinkedHashMap<GenreLookupKey, GenreLookup> entries;
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	GenreMemo(Environment environment) {
+		this(environment.getRequiredProperty("musicbrainz-enricher.genre-memo.max-size", Integer.class));
+	}
+
+	GenreMemo(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Max size must not be negative.");
+		}
+		this.maxSize = maxSize;
+		entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<GenreLookupKey, GenreLookup> eldest) {
+				return size() > GenreMemo.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the genres the enricher found for the relation target before, or looks them up.
+	 *
+	 * @param genreEnricher Enricher the genres are looked up with.
+	 * @param relation      Relation to look up genres for.
+	 * @param lookUp        Looks up the genres if they are not remembered.
+	 * @return Genres of the relation target.
+	 */
+	public GenreLookup fetchGenres(GenreEnricher genreEnricher, RelationWs2 relation, Supplier<GenreLookup> lookUp) {
+		GenreLookupKey key = GenreLookupKey.of(genreEnricher, relation);
+		GenreLookup genreLookup;
+		synchronized (entries) {
+			genreLookup = entries.get(key);
+		}
+		if (genreLookup != null) {
+			LOGGER.trace("Using remembered genres for '{}'.", key);
+			hits.incrementAndGet();
+			return genreLookup;
+		}
+
+		misses.incrementAndGet();
+		// Not holding the lock while fetching, so lookups of other URLs are not blocked. Concurrent lookups of the
+		// same URL both call the enricher, the services it uses share the request itself.
+		genreLookup = lookUp.get();
+		if (genreLookup.status() != GenreLookup.Status.ERROR) {
+			synchronized (entries) {
+				entries.put(key, genreLookup);
+			}
+		}
+		return genreLookup;
+	}
+
+	/**
+	 * @param genreEnricher Enricher the genres are looked up with.
+	 * @param relation      Relation to look up genres for.
+	 * @return If the genres of the relation target are remembered.
+	 */
+	public boolean contains(GenreEnricher genreEnricher, RelationWs2 relation) {
+		GenreLookupKey key = GenreLookupKey.of(genreEnricher, relation);
+		synchronized (entries) {
+			return entries.containsKey(key);
+		}
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	@PreDestroy
+	void logStatistics() {
+		long currentHits = getHits();
+		long total = currentHits + getMisses();
+		LOGGER.info("Genre memo statistics: {} hit(s) of {} lookup(s) ({}%).",
+			currentHits,
+			total,
+			total > 0 ? currentHits * 100 / total : 0);
+	}
+}
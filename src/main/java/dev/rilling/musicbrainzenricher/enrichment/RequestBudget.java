@@ -0,0 +1,107 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import net.jcip.annotations.ThreadSafe;
+import org.musicbrainz.model.RelationWs2;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many relations are passed to enrichers, e.g. so that re-enriching already checked entities only uses
+ * otherwise idle capacity.
+ * <p>
+ * Each configured host has its own budget, all other hosts share the default budget. Hosts also match subdomains,
+ * e.g. {@code bandcamp.com} for {@code foo.bandcamp.com}.
+ */
+@ThreadSafe
+public class RequestBudget {
+
+	private static final RequestBudget UNLIMITED = new RequestBudget(Map.of(), Long.MAX_VALUE);
+
+	private final Map<String, AtomicLong> remainingByHost;
+	private final AtomicLong remainingDefault;
+
+	/**
+	 * @param hostBudgets   Number of relations that may be enriched per host.
+	 * @param defaultBudget Number of relations of all other hosts that may be enriched.
+	 */
+	public RequestBudget(Map<String, Long> hostBudgets, long defaultBudget) {
+		remainingByHost = new HashMap<>(hostBudgets.size());
+		hostBudgets.forEach((host, budget) -> remainingByHost.put(host, new AtomicLong(budget)));
+		remainingDefault = new AtomicLong(defaultBudget);
+	}
+
+	/**
+	 * @return Budget that never runs out.
+	 */
+	public static RequestBudget unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * @return If this budget never runs out.
+	 */
+	public boolean isUnlimited() {
+		return this == UNLIMITED;
+	}
+
+	/**
+	 * Takes one request from the budget of the relation's host, if any is remaining.
+	 *
+	 * @param relation Relation that is about to be enriched.
+	 * @return If the relation may be enriched.
+	 */
+	public boolean tryAcquire(RelationWs2 relation) {
+		return tryAcquireAll(List.of(relation));
+	}
+
+	/**
+	 * Takes one request per relation from the budget of its host, but only if all of them are remaining.
+	 *
+	 * @param relations Relations that are about to be enriched.
+	 * @return If the relations may be enriched. If not, no request was taken.
+	 */
+	public boolean tryAcquireAll(Collection<RelationWs2> relations) {
+		if (this == UNLIMITED) {
+			return true;
+		}
+		List<AtomicLong> acquired = new ArrayList<>(relations.size());
+		for (RelationWs2 relation : relations) {
+			AtomicLong remaining = findRemaining(relation.getTargetId());
+			if (remaining.getAndUpdate(current -> Math.max(current - 1, 0)) <= 0) {
+				// Give back what was taken, so that entities with fewer relations can still use it.
+				acquired.forEach(AtomicLong::incrementAndGet);
+				return false;
+			}
+			acquired.add(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * @return If the budget of every host is used up.
+	 */
+	public boolean isExhausted() {
+		return remainingDefault.get() <= 0 && remainingByHost.values().stream().allMatch(remaining -> remaining.get() <= 0);
+	}
+
+	private AtomicLong findRemaining(String url) {
+		String host;
+		try {
+			host = new URI(url).getHost();
+		} catch (URISyntaxException e) {
+			return remainingDefault;
+		}
+		if (host == null) {
+			return remainingDefault;
+		}
+		for (Map.Entry<String, AtomicLong> entry : remainingByHost.entrySet()) {
+			if (host.equals(entry.getKey()) || host.endsWith("." + entry.getKey())) {
+				return entry.getValue();
+			}
+		}
+		return remainingDefault;
+	}
+}
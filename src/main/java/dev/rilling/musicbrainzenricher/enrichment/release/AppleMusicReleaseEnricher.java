@@ -1,11 +1,15 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.ExtractedPage;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.ScrapingService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import net.jcip.annotations.ThreadSafe;
-import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.jsoup.select.Evaluator;
 import org.jsoup.select.QueryParser;
 import org.musicbrainz.model.RelationWs2;
@@ -19,6 +23,7 @@ import java.util.Locale;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Uses web scraping because having to create an Apple account just to fetch music data is overkill.
@@ -45,24 +50,25 @@ class AppleMusicReleaseEnricher implements GenreEnricher {
 	}
 
 	@Override
-	public Set<String> fetchGenres(RelationWs2 relation) {
-		return scrapingService.load(relation.getTargetId())
-			.filter(document -> {
+	public GenreLookup fetchGenres(RelationWs2 relation) {
+		try {
+			return scrapingService.extract(relation.getTargetId(), Set.of(), Set.of(TAG_QUERY)).map(page -> {
 				// We can only process genres if they are in english.
-				if (!hasLocaleLanguage(document, Locale.ENGLISH)) {
+				if (!hasLocaleLanguage(page, Locale.ENGLISH)) {
 					LOGGER.debug("Skipping '{}' because the locale is not supported.", relation.getTargetId());
-					return false;
+					return GenreLookup.empty();
 				}
-				return true;
-			})
-			.map(this::extractTags)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
+				Set<String> tags = extractTags(page);
+				return GenreLookup.of(tags, genreMatcherService.match(tags));
+			}).orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
+		}
 	}
 
 
-	private Set<String> extractTags(Document document) {
-		String metaText = document.select(TAG_QUERY).text();
+	private Set<String> extractTags(ExtractedPage page) {
+		String metaText = page.getAll(TAG_QUERY).stream().map(Element::text).collect(Collectors.joining(" "));
 
 		Matcher matcher = META_REGEX.matcher(metaText);
 		if (!matcher.matches()) {
@@ -72,8 +78,8 @@ class AppleMusicReleaseEnricher implements GenreEnricher {
 		return Set.of(matcher.group("genre"));
 	}
 
-	private boolean hasLocaleLanguage(Document document, Locale locale) {
-		String parsedLocale = document.getElementsByTag("html").attr("lang");
+	private boolean hasLocaleLanguage(ExtractedPage page, Locale locale) {
+		String parsedLocale = page.root().attr("lang");
 
 		// We manually extract just the language to not have to deal with different locale representations
 		// (es-mx in HTML vs es_MX in Java).
@@ -102,6 +108,11 @@ class AppleMusicReleaseEnricher implements GenreEnricher {
 		return HOST_REGEX.matcher(url.getHost()).matches();
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofUrl("^https?://(itunes|music)\\.apple\\.com(/|$)"));
+	}
+
 
 	@Override
 
@@ -1,11 +1,14 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.ExtractedPage;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.ScrapingService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import net.jcip.annotations.ThreadSafe;
-import org.jsoup.nodes.Document;
 import org.jsoup.select.Evaluator;
 import org.jsoup.select.QueryParser;
 import org.musicbrainz.model.RelationWs2;
@@ -30,6 +33,8 @@ class BandcampReleaseEnricher implements GenreEnricher {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BandcampReleaseEnricher.class);
 
 	private static final Pattern HOST_REGEX = Pattern.compile(".+\\.bandcamp\\.com");
+	// Album and track pages have a single tag section, so parsing can stop once it was found.
+	private static final Evaluator TAGS_QUERY = QueryParser.parse(".tralbum-tags");
 	private static final Evaluator TAG_QUERY = QueryParser.parse(".tralbum-tags > .tag");
 
 	private final GenreMatcherService genreMatcherService;
@@ -42,16 +47,20 @@ class BandcampReleaseEnricher implements GenreEnricher {
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
-		return scrapingService.load(relation.getTargetId())
-			.map(this::extractTags)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
+	public GenreLookup fetchGenres(RelationWs2 relation) {
+		try {
+			return scrapingService.extract(relation.getTargetId(), Set.of(TAGS_QUERY), Set.of())
+				.map(this::extractTags)
+				.map(tags -> GenreLookup.of(tags, genreMatcherService.match(tags)))
+				.orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
+		}
 	}
 
 
-	private Set<String> extractTags(Document document) {
-		return Set.copyOf(document.select(TAG_QUERY).eachText());
+	private Set<String> extractTags(ExtractedPage page) {
+		return page.get(TAGS_QUERY).map(tags -> Set.copyOf(tags.select(TAG_QUERY).eachText())).orElse(Set.of());
 	}
 
 	@Override
@@ -69,6 +78,11 @@ class BandcampReleaseEnricher implements GenreEnricher {
 		return HOST_REGEX.matcher(url.getHost()).matches();
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofUrl("^https?://[^/]+\\.bandcamp\\.com(/|$)"));
+	}
+
 	@Override
 
 	public DataType getDataType() {
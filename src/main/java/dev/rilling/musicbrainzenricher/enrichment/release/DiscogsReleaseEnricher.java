@@ -1,10 +1,13 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.discogs.DiscogsQueryService;
 import dev.rilling.musicbrainzenricher.api.discogs.DiscogsRelease;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import dev.rilling.musicbrainzenricher.util.RegexUtils;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.model.RelationWs2;
@@ -37,16 +40,20 @@ class DiscogsReleaseEnricher implements GenreEnricher {
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
+	public GenreLookup fetchGenres(RelationWs2 relation) {
 		Optional<String> discogsId = RegexUtils.maybeGroup(URL_REGEX.matcher(relation.getTargetId()), "id");
 		if (discogsId.isEmpty()) {
 			LOGGER.warn("Could not find discogs ID: '{}'.", relation.getTargetId());
-			return Set.of();
+			return GenreLookup.empty();
+		}
+		try {
+			return discogsQueryService.lookUpRelease(discogsId.get())
+				.map(this::extractGenres)
+				.map(tags -> GenreLookup.of(tags, genreMatcherService.match(tags)))
+				.orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
 		}
-		return discogsQueryService.lookUpRelease(discogsId.get())
-			.map(this::extractGenres)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
 	}
 
 
@@ -64,6 +71,11 @@ class DiscogsReleaseEnricher implements GenreEnricher {
 			   "http://musicbrainz.org/ns/rel-2.0#url".equals(relation.getTargetType());
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofLinkType("discogs", "^https?://www\\.discogs\\.com/release/\\d+"));
+	}
+
 	@Override
 
 	public DataType getDataType() {
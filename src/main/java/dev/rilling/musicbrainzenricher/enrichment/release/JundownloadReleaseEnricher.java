@@ -1,11 +1,14 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.ExtractedPage;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.ScrapingService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import net.jcip.annotations.ThreadSafe;
-import org.jsoup.nodes.Document;
 import org.jsoup.select.Evaluator;
 import org.jsoup.select.QueryParser;
 import org.musicbrainz.model.RelationWs2;
@@ -42,16 +45,20 @@ class JundownloadReleaseEnricher implements GenreEnricher {
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
-		return scrapingService.load(relation.getTargetId())
-			.map(this::extractTags)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
+	public GenreLookup fetchGenres(RelationWs2 relation) {
+		try {
+			return scrapingService.extract(relation.getTargetId(), Set.of(TAG_QUERY), Set.of())
+				.map(this::extractTags)
+				.map(tags -> GenreLookup.of(tags, genreMatcherService.match(tags)))
+				.orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
+		}
 	}
 
 
-	private Set<String> extractTags(Document document) {
-		return Set.of(document.select(TAG_QUERY).attr("content"));
+	private Set<String> extractTags(ExtractedPage page) {
+		return page.get(TAG_QUERY).map(genre -> Set.of(genre.attr("content"))).orElse(Set.of());
 	}
 
 	@Override
@@ -69,6 +76,11 @@ class JundownloadReleaseEnricher implements GenreEnricher {
 		return HOST_REGEX.matcher(url.getHost()).matches();
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofUrl("^https?://www\\.junodownload\\.com(/|$)"));
+	}
+
 	@Override
 
 	public DataType getDataType() {
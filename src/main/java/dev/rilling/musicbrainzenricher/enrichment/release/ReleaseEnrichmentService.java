@@ -1,12 +1,15 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzDatabaseLookupService;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzEditController;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzException;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzLookupService;
 import dev.rilling.musicbrainzenricher.core.DataType;
 import dev.rilling.musicbrainzenricher.enrichment.AbstractEnrichmentService;
 import dev.rilling.musicbrainzenricher.enrichment.Enricher;
+import dev.rilling.musicbrainzenricher.enrichment.EnrichmentResultStore;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreMemo;
 import dev.rilling.musicbrainzenricher.util.MergeUtils;
 import org.musicbrainz.includes.ReleaseIncludesWs2;
 import org.musicbrainz.model.RelationWs2;
@@ -29,14 +32,19 @@ public class ReleaseEnrichmentService extends AbstractEnrichmentService<ReleaseW
 
 	private static final double MIN_GENRE_USAGE = 0.90;
 
+	private final MusicbrainzDatabaseLookupService musicbrainzDatabaseLookupService;
 	private final MusicbrainzLookupService musicbrainzLookupService;
 	private final MusicbrainzEditController musicbrainzEditController;
 
 	ReleaseEnrichmentService(ApplicationContext applicationContext,
 							 @Qualifier("enrichmentExecutor") ExecutorService executorService,
+							 GenreMemo genreMemo,
+							 EnrichmentResultStore enrichmentResultStore,
+							 MusicbrainzDatabaseLookupService musicbrainzDatabaseLookupService,
 							 MusicbrainzLookupService musicbrainzLookupService,
 							 MusicbrainzEditController musicbrainzEditController) {
-		super(applicationContext, executorService);
+		super(applicationContext, executorService, genreMemo, enrichmentResultStore);
+		this.musicbrainzDatabaseLookupService = musicbrainzDatabaseLookupService;
 		this.musicbrainzLookupService = musicbrainzLookupService;
 		this.musicbrainzEditController = musicbrainzEditController;
 	}
@@ -47,6 +55,14 @@ public class ReleaseEnrichmentService extends AbstractEnrichmentService<ReleaseW
 		return DataType.RELEASE;
 	}
 
+	@Override
+	protected Map<UUID, ReleaseWs2> fetchEntities(Collection<UUID> mbids) {
+		if (!musicbrainzDatabaseLookupService.isUpToDate()) {
+			return Map.of();
+		}
+		return musicbrainzDatabaseLookupService.lookUpReleases(mbids);
+	}
+
 	@Override
 
 	protected Optional<ReleaseWs2> fetchEntity(UUID mbid) {
@@ -78,7 +94,7 @@ public class ReleaseEnrichmentService extends AbstractEnrichmentService<ReleaseW
 		LOGGER.debug("Starting enricher {} for '{}'.", enricher.getClass().getSimpleName(), relation);
 		Set<String> newGenres = new HashSet<>(5);
 		if (enricher instanceof GenreEnricher genreEnricher) {
-			Set<String> genres = genreEnricher.fetchGenres(relation);
+			Set<String> genres = fetchGenres(genreEnricher, relation);
 			LOGGER.debug("Enricher {} found genres '{}' for '{}'.",
 				genreEnricher.getClass().getSimpleName(),
 				genres,
@@ -101,12 +117,14 @@ public class ReleaseEnrichmentService extends AbstractEnrichmentService<ReleaseW
 	}
 
 	@Override
-	protected void updateEntity(ReleaseWs2 entity, ReleaseEnrichmentResult result) {
-		if (!result.genres().isEmpty()) {
-			ReleaseGroupWs2 releaseGroup = entity.getReleaseGroup();
-			LOGGER.info("Submitting new tags '{}' for the release group '{}'.", result.genres(), releaseGroup.getId());
-			musicbrainzEditController.submitReleaseGroupUserTags(releaseGroup, result.genres());
+	protected boolean updateEntity(ReleaseWs2 entity, ReleaseEnrichmentResult result) {
+		if (result.genres().isEmpty()) {
+			return false;
 		}
+		ReleaseGroupWs2 releaseGroup = entity.getReleaseGroup();
+		LOGGER.info("Submitting new tags '{}' for the release group '{}'.", result.genres(), releaseGroup.getId());
+		musicbrainzEditController.submitReleaseGroupUserTags(releaseGroup, result.genres());
+		return true;
 	}
 
 	protected record ReleaseEnrichmentResult(Set<String> genres) {
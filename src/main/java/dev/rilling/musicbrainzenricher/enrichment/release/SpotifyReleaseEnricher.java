@@ -1,9 +1,12 @@
 package dev.rilling.musicbrainzenricher.enrichment.release;
 
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.spotify.SpotifyQueryService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.model.RelationWs2;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -34,12 +37,16 @@ class SpotifyReleaseEnricher implements GenreEnricher {
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
-		return spotifyQueryService
-			.lookUpRelease(findReleaseId(relation.getTargetId()))
-			.map(this::extractGenres)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
+	public GenreLookup fetchGenres(RelationWs2 relation) {
+		try {
+			return spotifyQueryService
+				.lookUpRelease(findReleaseId(relation.getTargetId()))
+				.map(this::extractGenres)
+				.map(tags -> GenreLookup.of(tags, genreMatcherService.match(tags)))
+				.orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
+		}
 	}
 
 
@@ -64,6 +71,11 @@ class SpotifyReleaseEnricher implements GenreEnricher {
 		return URL_REGEX.matcher(targetUrl).matches();
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofUrl("^https?://open\\.spotify\\.com/album/\\w+$"));
+	}
+
 	@Override
 
 	public DataType getDataType() {
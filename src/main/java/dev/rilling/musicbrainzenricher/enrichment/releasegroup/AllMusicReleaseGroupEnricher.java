@@ -1,11 +1,14 @@
 package dev.rilling.musicbrainzenricher.enrichment.releasegroup;
 
+import dev.rilling.musicbrainzenricher.api.ExtractedPage;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
 import dev.rilling.musicbrainzenricher.api.ScrapingService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreMatcherService;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import net.jcip.annotations.ThreadSafe;
-import org.jsoup.nodes.Document;
 import org.jsoup.select.Evaluator;
 import org.jsoup.select.QueryParser;
 import org.musicbrainz.model.RelationWs2;
@@ -23,6 +26,8 @@ import java.util.Set;
 @ThreadSafe
 class AllMusicReleaseGroupEnricher implements GenreEnricher {
 
+	private static final Evaluator GENRE_SECTION_QUERY = QueryParser.parse(".genre");
+	private static final Evaluator STYLES_SECTION_QUERY = QueryParser.parse(".styles");
 	private static final Evaluator GENRE_QUERY = QueryParser.parse(".genre > div > a");
 	private static final Evaluator STYLES_QUERY = QueryParser.parse(".styles > div > a");
 
@@ -36,17 +41,24 @@ class AllMusicReleaseGroupEnricher implements GenreEnricher {
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
-		return scrapingService.load(relation.getTargetId())
-			.map(this::extractTags)
-			.map(genreMatcherService::match)
-			.orElse(Set.of());
+	public GenreLookup fetchGenres(RelationWs2 relation) {
+		try {
+			return scrapingService.extract(relation.getTargetId(),
+					Set.of(),
+					Set.of(GENRE_SECTION_QUERY, STYLES_SECTION_QUERY))
+				.map(this::extractTags)
+				.map(tags -> GenreLookup.of(tags, genreMatcherService.match(tags)))
+				.orElseGet(GenreLookup::empty);
+		} catch (LookupFailedException e) {
+			return GenreLookup.failed();
+		}
 	}
 
 
-	private Set<String> extractTags(Document document) {
-		Set<String> tags = new HashSet<>(document.select(GENRE_QUERY).eachText());
-		tags.addAll(document.select(STYLES_QUERY).eachText());
+	private Set<String> extractTags(ExtractedPage page) {
+		Set<String> tags = new HashSet<>();
+		page.getAll(GENRE_SECTION_QUERY).forEach(section -> tags.addAll(section.select(GENRE_QUERY).eachText()));
+		page.getAll(STYLES_SECTION_QUERY).forEach(section -> tags.addAll(section.select(STYLES_QUERY).eachText()));
 		return tags;
 	}
 
@@ -56,6 +68,11 @@ class AllMusicReleaseGroupEnricher implements GenreEnricher {
 			   "http://musicbrainz.org/ns/rel-2.0#url".equals(relation.getTargetType());
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofLinkType("allmusic"));
+	}
+
 	@Override
 	public DataType getDataType() {
 		return DataType.RELEASE_GROUP;
@@ -1,12 +1,15 @@
 package dev.rilling.musicbrainzenricher.enrichment.releasegroup;
 
+import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzDatabaseLookupService;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzEditController;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzException;
 import dev.rilling.musicbrainzenricher.api.musicbrainz.MusicbrainzLookupService;
 import dev.rilling.musicbrainzenricher.core.DataType;
 import dev.rilling.musicbrainzenricher.enrichment.AbstractEnrichmentService;
 import dev.rilling.musicbrainzenricher.enrichment.Enricher;
+import dev.rilling.musicbrainzenricher.enrichment.EnrichmentResultStore;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreMemo;
 import dev.rilling.musicbrainzenricher.util.MergeUtils;
 import org.musicbrainz.includes.ReleaseGroupIncludesWs2;
 import org.musicbrainz.model.RelationWs2;
@@ -28,14 +31,19 @@ public class ReleaseGroupEnrichmentService extends AbstractEnrichmentService<Rel
 
 	private static final double MIN_GENRE_USAGE = 0.90;
 
+	private final MusicbrainzDatabaseLookupService musicbrainzDatabaseLookupService;
 	private final MusicbrainzLookupService musicbrainzLookupService;
 	private final MusicbrainzEditController musicbrainzEditController;
 
 	ReleaseGroupEnrichmentService(ApplicationContext applicationContext,
 								  @Qualifier("enrichmentExecutor") ExecutorService executorService,
+								  GenreMemo genreMemo,
+								  EnrichmentResultStore enrichmentResultStore,
+								  MusicbrainzDatabaseLookupService musicbrainzDatabaseLookupService,
 								  MusicbrainzLookupService musicbrainzLookupService,
 								  MusicbrainzEditController musicbrainzEditController) {
-		super(applicationContext, executorService);
+		super(applicationContext, executorService, genreMemo, enrichmentResultStore);
+		this.musicbrainzDatabaseLookupService = musicbrainzDatabaseLookupService;
 		this.musicbrainzLookupService = musicbrainzLookupService;
 		this.musicbrainzEditController = musicbrainzEditController;
 	}
@@ -46,6 +54,14 @@ public class ReleaseGroupEnrichmentService extends AbstractEnrichmentService<Rel
 		return DataType.RELEASE_GROUP;
 	}
 
+	@Override
+	protected Map<UUID, ReleaseGroupWs2> fetchEntities(Collection<UUID> mbids) {
+		if (!musicbrainzDatabaseLookupService.isUpToDate()) {
+			return Map.of();
+		}
+		return musicbrainzDatabaseLookupService.lookUpReleaseGroups(mbids);
+	}
+
 	@Override
 
 	protected Optional<ReleaseGroupWs2> fetchEntity(UUID mbid) {
@@ -76,7 +92,7 @@ public class ReleaseGroupEnrichmentService extends AbstractEnrichmentService<Rel
 		LOGGER.debug("Starting enricher {} for '{}'.", enricher.getClass().getSimpleName(), relation);
 		Set<String> newGenres = new HashSet<>(5);
 		if (enricher instanceof GenreEnricher genreEnricher) {
-			Set<String> genres = genreEnricher.fetchGenres(relation);
+			Set<String> genres = fetchGenres(genreEnricher, relation);
 			LOGGER.debug("Enricher {} found genres '{}' for '{}'.",
 				genreEnricher.getClass().getSimpleName(),
 				genres,
@@ -100,11 +116,13 @@ public class ReleaseGroupEnrichmentService extends AbstractEnrichmentService<Rel
 	}
 
 	@Override
-	protected void updateEntity(ReleaseGroupWs2 entity, ReleaseGroupEnrichmentResult result) {
-		if (!result.genres().isEmpty()) {
-			LOGGER.info("Submitting new tags '{}' for the release group '{}'.", result.genres(), entity.getId());
-			musicbrainzEditController.submitReleaseGroupUserTags(entity, result.genres());
+	protected boolean updateEntity(ReleaseGroupWs2 entity, ReleaseGroupEnrichmentResult result) {
+		if (result.genres().isEmpty()) {
+			return false;
 		}
+		LOGGER.info("Submitting new tags '{}' for the release group '{}'.", result.genres(), entity.getId());
+		musicbrainzEditController.submitReleaseGroupUserTags(entity, result.genres());
+		return true;
 	}
 
 	protected record ReleaseGroupEnrichmentResult(Set<String> genres) {
@@ -2,20 +2,29 @@ package dev.rilling.musicbrainzenricher.enrichment.releasegroup;
 
 import dev.rilling.musicbrainzenricher.api.wikidata.WikidataService;
 import dev.rilling.musicbrainzenricher.core.DataType;
+import dev.rilling.musicbrainzenricher.core.RelationPattern;
 import dev.rilling.musicbrainzenricher.core.genre.GenreRepository;
+import dev.rilling.musicbrainzenricher.core.genre.WikidataGenre;
+import dev.rilling.musicbrainzenricher.core.genre.WikidataGenreRepository;
 import dev.rilling.musicbrainzenricher.enrichment.GenreEnricher;
+import dev.rilling.musicbrainzenricher.enrichment.GenreLookup;
 import dev.rilling.musicbrainzenricher.util.RegexUtils;
 import net.jcip.annotations.ThreadSafe;
 import org.musicbrainz.model.RelationWs2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.Statement;
 import org.wikidata.wdtk.datamodel.interfaces.StringValue;
 import org.wikidata.wdtk.datamodel.interfaces.Value;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -25,12 +34,19 @@ import java.util.regex.Pattern;
  *     <li>Look up wikidata release entity by ID</li>
  *     <li>Find genre statements</li>
  *     <li>For every genre statement, get its id</li>
- *     <li>For every genre id, find the genre entity by ID</li>
+ *     <li>For all genre ids, find the genre entities by ID</li>
  *     <li>For every genre entity, find the musicbrainz link statement</li>
  *     <li>For every genre entities musicbrainz link statement, look up its name by the MBID against the musicbrainz database</li>
  *     <li>Return the names found in the musicbrainz database</li>
  * </ol>
  * <p>
+ * Release group entities are loaded in batches together with those of other release groups being enriched at the same
+ * time (see {@link WikidataService}).
+ * <p>
+ * As there are only few genres, the genre name for a genre ID is cached in memory and in {@link WikidataGenreRepository}.
+ * Genres without a musicbrainz link are cached as well, but resolved again after
+ * {@code musicbrainz-enricher.wikidata.negative-cache-ttl}.
+ * <p>
  * Also see <a href="https://www.mediawiki.org/wiki/Wikidata_Toolkit">https://www.mediawiki.org/wiki/Wikidata_Toolkit</a>
  */
 // https://musicbrainz.org/release-group/a63e5fa6-d6ad-47bd-986d-4a27b0c9de70
@@ -46,56 +62,115 @@ class WikidataReleaseGroupEnricher implements GenreEnricher {
 
 	private static final Pattern ID_REGEX = Pattern.compile(".+/(?<id>Q\\d+)$");
 
+	private final Duration negativeCacheTtl;
+
 	private final WikidataService wikidataService;
 	private final GenreRepository genreRepository;
+	private final WikidataGenreRepository wikidataGenreRepository;
+
+	private final Map<String, WikidataGenre> genresByWikidataId = new ConcurrentHashMap<>();
 
-	WikidataReleaseGroupEnricher(WikidataService wikidataService, GenreRepository genreRepository) {
+	WikidataReleaseGroupEnricher(Environment environment,
+								 WikidataService wikidataService,
+								 GenreRepository genreRepository,
+								 WikidataGenreRepository wikidataGenreRepository) {
 		this.wikidataService = wikidataService;
 		this.genreRepository = genreRepository;
+		this.wikidataGenreRepository = wikidataGenreRepository;
+
+		negativeCacheTtl = environment.getRequiredProperty("musicbrainz-enricher.wikidata.negative-cache-ttl",
+			Duration.class);
 	}
 
 	@Override
 
-	public Set<String> fetchGenres(RelationWs2 relation) {
+	public GenreLookup fetchGenres(RelationWs2 relation) {
 		Optional<String> id = RegexUtils.maybeGroup(ID_REGEX.matcher(relation.getTargetId()), "id");
 		if (id.isEmpty()) {
 			LOGGER.warn("Could not find ID in '{}'.", relation.getTargetId());
-			return Set.of();
+			return GenreLookup.empty();
 		}
 		// We can skip genre matching as we use the genre names directly from Musicbrainz.
 		return wikidataService.findEntityPropertyValues(id.get(), GENRE_PROPERTY_ID)
-			.map(this::extractGenreNames)
-			.orElse(Set.of());
+			.map(this::resolveGenres)
+			.orElseGet(GenreLookup::failed);
 	}
 
 
-	private Set<String> extractGenreNames(List<Statement> genreStatements) {
+	/**
+	 * @return Lookup with the wikidata IDs of the genres as tags, or a failed lookup if some genres could not be loaded.
+	 */
+	private GenreLookup resolveGenres(List<Statement> genreStatements) {
+		Set<String> genreIds = new HashSet<>(genreStatements.size());
 		Set<String> genres = new HashSet<>(genreStatements.size());
+		Set<String> unresolvedGenreIds = new HashSet<>(genreStatements.size());
 		for (Statement genreStatement : genreStatements) {
 			if (!(genreStatement.getValue() instanceof EntityIdValue)) {
 				LOGGER.warn("Unexpected genre statement type: '{}'.", genreStatement);
 			} else {
-				findGenreName(((EntityIdValue) genreStatement.getValue()).getId()).ifPresent(genres::add);
+				String genreId = ((EntityIdValue) genreStatement.getValue()).getId();
+				genreIds.add(genreId);
+				findCachedGenre(genreId).ifPresentOrElse(genre -> {
+					if (genre.genreName() != null) {
+						genres.add(genre.genreName());
+					}
+				}, () -> unresolvedGenreIds.add(genreId));
+			}
+		}
+
+		if (!unresolvedGenreIds.isEmpty()) {
+			// Resolve all genres not cached yet with a single request.
+			Map<String, List<Statement>> musicbrainzLinkStatementsByGenreId = wikidataService.findEntitiesPropertyValues(
+				unresolvedGenreIds,
+				MUSICBRAINZ_LINK_PROPERTY_ID);
+			musicbrainzLinkStatementsByGenreId.forEach((genreId, musicbrainzLinkStatements) -> resolveGenre(genreId,
+				musicbrainzLinkStatements).ifPresent(genre -> {
+				wikidataGenreRepository.save(genre.wikidataId(), genre.genreName());
+				genresByWikidataId.put(genreId, genre);
+				if (genre.genreName() != null) {
+					genres.add(genre.genreName());
+				}
+			}));
+			// Otherwise, the genres that could not be loaded would be missing from the result until it expires.
+			if (!musicbrainzLinkStatementsByGenreId.keySet().containsAll(unresolvedGenreIds)) {
+				LOGGER.warn("Could not load all genres: '{}'.", unresolvedGenreIds);
+				return GenreLookup.failed();
 			}
 		}
-		return genres;
+		return GenreLookup.of(genreIds, genres);
 	}
 
+	private Optional<WikidataGenre> findCachedGenre(String genreId) {
+		WikidataGenre genre = genresByWikidataId.get(genreId);
+		if (genre != null && !isExpired(genre)) {
+			return Optional.of(genre);
+		}
+		Optional<WikidataGenre> persistedGenre = wikidataGenreRepository.findByWikidataId(genreId)
+			.filter(Predicate.not(this::isExpired));
+		persistedGenre.ifPresent(value -> genresByWikidataId.put(genreId, value));
+		return persistedGenre;
+	}
 
-	private Optional<String> findGenreName(String genreId) {
-		Optional<List<Statement>> musicbrainzLinkStatements = wikidataService.findEntityPropertyValues(genreId,
-			MUSICBRAINZ_LINK_PROPERTY_ID);
-		if (musicbrainzLinkStatements.map(List::isEmpty).orElse(true)) {
+	/**
+	 * @return Resolved genre, or empty if it could not be resolved and should not be cached.
+	 */
+	private Optional<WikidataGenre> resolveGenre(String genreId, List<Statement> musicbrainzLinkStatements) {
+		if (musicbrainzLinkStatements.isEmpty()) {
 			LOGGER.warn("No musicbrainz link found for genre: '{}'.", genreId);
-			return Optional.empty();
+			return Optional.of(new WikidataGenre(genreId, null, Instant.now()));
 		}
-		Value value = musicbrainzLinkStatements.get().getFirst().getValue();
+		Value value = musicbrainzLinkStatements.getFirst().getValue();
 		if (!(value instanceof StringValue)) {
 			LOGGER.warn("Unexpected musicbrainz link type: '{}'.", value);
-			return Optional.empty();
+			return Optional.of(new WikidataGenre(genreId, null, Instant.now()));
 		}
 		UUID mbid = UUID.fromString(((StringValue) value).getString());
-		return genreRepository.findGenreNameByMbid(mbid);
+		// If the genre is not in the local database yet, it might be after the next replication, so we do not cache this.
+		return genreRepository.findGenreNameByMbid(mbid).map(name -> new WikidataGenre(genreId, name, Instant.now()));
+	}
+
+	private boolean isExpired(WikidataGenre genre) {
+		return genre.genreName() == null && genre.checkedAt().plus(negativeCacheTtl).isBefore(Instant.now());
 	}
 
 	@Override
@@ -104,6 +179,11 @@ class WikidataReleaseGroupEnricher implements GenreEnricher {
 			   "http://musicbrainz.org/ns/rel-2.0#url".equals(relation.getTargetType());
 	}
 
+	@Override
+	public Set<RelationPattern> getSupportedRelations() {
+		return Set.of(RelationPattern.ofLinkType("wikidata"));
+	}
+
 	@Override
 
 	public DataType getDataType() {
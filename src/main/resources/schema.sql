@@ -7,15 +7,50 @@ CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_history_entry
 		ON DELETE CASCADE
 );
 
+ALTER TABLE musicbrainz_enricher.release_history_entry
+	ADD COLUMN IF NOT EXISTS checked_at timestamptz NOT NULL DEFAULT now(),
+	ADD COLUMN IF NOT EXISTS outcome    text;
+
+CREATE INDEX IF NOT EXISTS release_history_entry_checked_at_idx
+	ON musicbrainz_enricher.release_history_entry (checked_at);
+
 CREATE MATERIALIZED VIEW IF NOT EXISTS musicbrainz_enricher.release_with_relationships AS
 SELECT *
 FROM musicbrainz.release r
 WHERE r.id IN
 	  (SELECT lru.entity0 FROM musicbrainz.l_release_url lru);
 
-CREATE OR REPLACE VIEW musicbrainz_enricher.release_work_queue AS
-SELECT *
-FROM musicbrainz_enricher.release_with_relationships r
+CREATE UNIQUE INDEX IF NOT EXISTS release_with_relationships_id_idx
+	ON musicbrainz_enricher.release_with_relationships (id);
+
+-- Entities that gained URL relationships since the materialized view was last refreshed.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_with_relationships_delta
+(
+	id  integer PRIMARY KEY NOT NULL,
+	gid uuid                NOT NULL
+);
+
+-- Expected yield of the entities with relationships, see WorkQueueRepository#scoreEntities.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_work_queue_score
+(
+	id    integer PRIMARY KEY NOT NULL,
+	gid   uuid                NOT NULL,
+	score double precision    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS release_work_queue_score_score_id_idx
+	ON musicbrainz_enricher.release_work_queue_score (score, id);
+
+-- Entities with relationships that were evaluated by WorkQueueRepository#scoreEntities, but have no supported relation.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_work_queue_unsupported
+(
+	id integer PRIMARY KEY NOT NULL
+);
+
+DROP VIEW IF EXISTS musicbrainz_enricher.release_work_queue;
+CREATE VIEW musicbrainz_enricher.release_work_queue AS
+SELECT r.id, r.gid, r.score
+FROM musicbrainz_enricher.release_work_queue_score r
 		 LEFT JOIN musicbrainz_enricher.release_history_entry rhe ON r.gid = rhe.release_gid
 WHERE rhe.release_gid IS NULL;
 
@@ -26,14 +61,122 @@ CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_group_history_entry
 		ON DELETE CASCADE
 );
 
+ALTER TABLE musicbrainz_enricher.release_group_history_entry
+	ADD COLUMN IF NOT EXISTS checked_at timestamptz NOT NULL DEFAULT now(),
+	ADD COLUMN IF NOT EXISTS outcome    text;
+
+CREATE INDEX IF NOT EXISTS release_group_history_entry_checked_at_idx
+	ON musicbrainz_enricher.release_group_history_entry (checked_at);
+
 CREATE MATERIALIZED VIEW IF NOT EXISTS musicbrainz_enricher.release_group_with_relationships AS
 SELECT *
 FROM musicbrainz.release_group rg
 WHERE rg.id IN
 	  (SELECT lrgu.entity0 FROM musicbrainz.l_release_group_url lrgu);
 
-CREATE OR REPLACE VIEW musicbrainz_enricher.release_group_work_queue AS
-SELECT *
-FROM musicbrainz_enricher.release_group_with_relationships rg
+CREATE UNIQUE INDEX IF NOT EXISTS release_group_with_relationships_id_idx
+	ON musicbrainz_enricher.release_group_with_relationships (id);
+
+-- Entities that gained URL relationships since the materialized view was last refreshed.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_group_with_relationships_delta
+(
+	id  integer PRIMARY KEY NOT NULL,
+	gid uuid                NOT NULL
+);
+
+-- Expected yield of the entities with relationships, see WorkQueueRepository#scoreEntities.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_group_work_queue_score
+(
+	id    integer PRIMARY KEY NOT NULL,
+	gid   uuid                NOT NULL,
+	score double precision    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS release_group_work_queue_score_score_id_idx
+	ON musicbrainz_enricher.release_group_work_queue_score (score, id);
+
+-- Entities with relationships that were evaluated by WorkQueueRepository#scoreEntities, but have no supported relation.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.release_group_work_queue_unsupported
+(
+	id integer PRIMARY KEY NOT NULL
+);
+
+DROP VIEW IF EXISTS musicbrainz_enricher.release_group_work_queue;
+CREATE VIEW musicbrainz_enricher.release_group_work_queue AS
+SELECT rg.id, rg.gid, rg.score
+FROM musicbrainz_enricher.release_group_work_queue_score rg
 		 LEFT JOIN musicbrainz_enricher.release_group_history_entry rghe ON rg.gid = rghe.release_group_gid
 WHERE rghe.release_group_gid IS NULL;
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.work_queue_cursor
+(
+	data_type text PRIMARY KEY NOT NULL,
+	last_id   bigint           NOT NULL
+);
+
+-- Positions without score were saved before the work queue was ordered by score and are ignored.
+ALTER TABLE musicbrainz_enricher.work_queue_cursor
+	ADD COLUMN IF NOT EXISTS last_score double precision;
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.wikidata_genre
+(
+	wikidata_id text PRIMARY KEY NOT NULL,
+	genre_name  text,
+	checked_at  timestamptz      NOT NULL DEFAULT now()
+);
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.discogs_cache_entry
+(
+	resource_type text        NOT NULL,
+	discogs_id    text        NOT NULL,
+	payload       jsonb,
+	fetched_at    timestamptz NOT NULL DEFAULT now(),
+	PRIMARY KEY (resource_type, discogs_id)
+);
+
+
+-- Keyed by the simple class name of the enricher and the normalized URL, see GenreLookupKey.
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.enrichment_result
+(
+	enricher   text        NOT NULL,
+	target_url text        NOT NULL,
+	status     text        NOT NULL,
+	tags       text[]      NOT NULL,
+	genres     text[]      NOT NULL,
+	fetched_at timestamptz NOT NULL DEFAULT now(),
+	PRIMARY KEY (enricher, target_url)
+);
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.work_chunk
+(
+	data_type    text        NOT NULL,
+	start_id     bigint      NOT NULL,
+	end_id       bigint      NOT NULL,
+	node_id      text,
+	leased_until timestamptz,
+	completed_at timestamptz,
+	PRIMARY KEY (data_type, start_id)
+);
+
+CREATE INDEX IF NOT EXISTS work_chunk_node_id_idx
+	ON musicbrainz_enricher.work_chunk (node_id) WHERE completed_at IS NULL;
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.work_queue_maintenance
+(
+	data_type            text PRIMARY KEY NOT NULL,
+	replication_sequence integer          NOT NULL,
+	replication_date     timestamptz      NOT NULL,
+	maintained_at        timestamptz      NOT NULL DEFAULT now()
+);
+
+
+CREATE TABLE IF NOT EXISTS musicbrainz_enricher.work_queue_watermark
+(
+	data_type    text PRIMARY KEY NOT NULL,
+	last_updated timestamptz      NOT NULL
+);
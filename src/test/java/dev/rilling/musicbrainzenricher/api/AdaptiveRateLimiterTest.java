@@ -0,0 +1,90 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveRateLimiterTest {
+
+	@Test
+	@DisplayName("halves rate when throttled, but not below minimum.")
+	void decreasesRate() throws InterruptedException {
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter("test", 10, 4, 20, Duration.ofSeconds(1));
+
+		rateLimiter.onThrottled(rateLimiter.acquire(), null);
+		assertThat(rateLimiter.getRate()).isEqualTo(5);
+
+		rateLimiter.onThrottled(rateLimiter.acquire(), null);
+		assertThat(rateLimiter.getRate()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("decreases rate only once for requests made before the decrease.")
+	void decreasesOncePerWindow() throws InterruptedException {
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter("test", 16, 1, 20, Duration.ofSeconds(1));
+		long acquiredAt1 = rateLimiter.acquire();
+		long acquiredAt2 = rateLimiter.acquire();
+
+		rateLimiter.onThrottled(acquiredAt1, null);
+		rateLimiter.onThrottled(acquiredAt2, null);
+
+		assertThat(rateLimiter.getRate()).isEqualTo(8);
+	}
+
+	@Test
+	@DisplayName("increases rate by about one after a full period of successful requests.")
+	void increasesRate() {
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter("test", 4, 1, 5, Duration.ofMinutes(1));
+
+		for (int i = 0; i < 5; i++) {
+			rateLimiter.onSuccess();
+		}
+		assertThat(rateLimiter.getRate()).isEqualTo(5);
+
+		for (int i = 0; i < 10; i++) {
+			rateLimiter.onSuccess();
+		}
+		assertThat(rateLimiter.getRate()).isEqualTo(5);
+	}
+
+	@Test
+	@DisplayName("spreads requests over the period instead of allowing a burst.")
+	void doesNotBurst() throws InterruptedException {
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter("test", 10, 1, 10, Duration.ofSeconds(1));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.acquire();
+		}
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+	}
+
+	@Test
+	@DisplayName("stops waiting when interrupted.")
+	void stopsWhenInterrupted() {
+		AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter("test", 1, 1, 1, Duration.ofMinutes(1));
+		rateLimiter.pause(Duration.ofMinutes(1));
+
+		Thread.currentThread().interrupt();
+		assertThatThrownBy(rateLimiter::acquire).isInstanceOf(InterruptedException.class);
+	}
+
+	@Test
+	@DisplayName("parses Retry-After seconds and dates.")
+	void parsesRetryAfter() {
+		assertThat(AdaptiveRateLimiter.parseRetryAfter("120")).contains(Duration.ofSeconds(120));
+		assertThat(AdaptiveRateLimiter.parseRetryAfter(null)).isEmpty();
+		assertThat(AdaptiveRateLimiter.parseRetryAfter("soon")).isEmpty();
+
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusMinutes(10));
+		assertThat(AdaptiveRateLimiter.parseRetryAfter(date)).hasValueSatisfying(duration -> assertThat(duration).isBetween(
+			Duration.ofMinutes(9),
+			Duration.ofMinutes(10)));
+	}
+}
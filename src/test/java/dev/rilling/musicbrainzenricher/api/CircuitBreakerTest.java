@@ -0,0 +1,80 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import dev.rilling.musicbrainzenricher.api.CircuitBreaker.State;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+	@Test
+	@DisplayName("opens after consecutive failures.")
+	void opensAfterFailures() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, Duration.ofHours(1));
+
+		fail(circuitBreaker);
+		fail(circuitBreaker);
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		circuitBreaker.onSuccess();
+		fail(circuitBreaker);
+		fail(circuitBreaker);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+		fail(circuitBreaker);
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isFalse();
+		assertThat(circuitBreaker.getOpenings()).isEqualTo(1);
+		assertThat(circuitBreaker.getRejectedCalls()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("lets a single trial request through after the open duration.")
+	void allowsSingleTrial() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, Duration.ZERO);
+		fail(circuitBreaker);
+
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+		circuitBreaker.onSuccess();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	@DisplayName("lets another trial request through if the trial request is released.")
+	void allowsTrialAfterRelease() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, Duration.ZERO);
+		fail(circuitBreaker);
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+
+		circuitBreaker.release();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		assertThat(circuitBreaker.tryAcquire()).isFalse();
+	}
+
+	@Test
+	@DisplayName("opens again if the trial request fails.")
+	void reopensAfterFailedTrial() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, Duration.ZERO);
+		fail(circuitBreaker);
+		fail(circuitBreaker);
+
+		fail(circuitBreaker);
+
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+		assertThat(circuitBreaker.getOpenings()).isEqualTo(2);
+	}
+
+	private static void fail(CircuitBreaker circuitBreaker) {
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		circuitBreaker.onFailure();
+	}
+}
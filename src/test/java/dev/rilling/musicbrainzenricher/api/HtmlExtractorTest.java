@@ -0,0 +1,118 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlExtractorTest {
+
+	private static final Evaluator GENRE_QUERY = QueryParser.parse(".genre");
+	private static final Evaluator STYLES_QUERY = QueryParser.parse(".styles");
+
+	@Test
+	@DisplayName("extracts the first match of each selector with its children.")
+	void extractsFirstMatches() throws IOException {
+		String html = """
+			<html lang="en-US"><body>
+			<div class="header"><a>Home</a></div>
+			<div class="styles"><div><a>Synthwave</a><a>Darksynth</a></div></div>
+			<div class="genre"><div><a>Electronic</a></div></div>
+			<div class="genre"><div><a>Rock</a></div></div>
+			</body></html>
+			""";
+
+		ExtractedPage page = HtmlExtractor.extract(new StringReader(html),
+			"https://example.com",
+			List.of(GENRE_QUERY, STYLES_QUERY),
+			List.of());
+
+		assertThat(page.get(GENRE_QUERY).map(genre -> genre.select(".genre > div > a").eachText())).contains(List.of(
+			"Electronic"));
+		assertThat(page.get(STYLES_QUERY).map(styles -> styles.select(".styles > div > a").eachText())).contains(List.of(
+			"Synthwave",
+			"Darksynth"));
+		assertThat(page.root().attr("lang")).isEqualTo("en-US");
+		assertThat(page.root().childrenSize()).isZero();
+	}
+
+	@Test
+	@DisplayName("extracts every match of selectors that need all of them.")
+	void extractsEveryMatch() throws IOException {
+		String html = """
+			<html><body>
+			<div class="genre"><div><a>Electronic</a></div></div>
+			<p>Filler</p>
+			<div class="genre"><div><a>Rock</a></div></div>
+			<div class="styles"><div><a>Synthwave</a></div></div>
+			<div class="styles"><div><a>Darksynth</a></div></div>
+			</body></html>
+			""";
+
+		ExtractedPage page = HtmlExtractor.extract(new StringReader(html),
+			"https://example.com",
+			List.of(STYLES_QUERY),
+			List.of(GENRE_QUERY));
+
+		assertThat(page.getAll(GENRE_QUERY)).extracting(Element::text).containsExactly("Electronic", "Rock");
+		assertThat(page.getAll(STYLES_QUERY)).extracting(Element::text).containsExactly("Synthwave");
+		assertThat(page.get(GENRE_QUERY).map(Element::text)).contains("Electronic");
+	}
+
+	@Test
+	@DisplayName("keeps selectors without match missing.")
+	void missesUnmatchedSelectors() throws IOException {
+		ExtractedPage page = HtmlExtractor.extract(new StringReader("<html><body><p>Hello</p></body></html>"),
+			"https://example.com",
+			List.of(GENRE_QUERY),
+			List.of());
+
+		assertThat(page.get(GENRE_QUERY)).isEmpty();
+		assertThat(page.get(GENRE_QUERY).map(Element::text)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("stops parsing once every selector matched.")
+	void stopsEarly() throws IOException {
+		String html = "<html><body><div class=\"genre\">Electronic</div>" + "<p>Filler</p>".repeat(100_000) +
+					  "</body></html>";
+		CountingReader reader = new CountingReader(new StringReader(html));
+
+		ExtractedPage page = HtmlExtractor.extract(reader, "https://example.com", List.of(GENRE_QUERY), List.of());
+
+		assertThat(page.get(GENRE_QUERY).map(Element::text)).contains("Electronic");
+		assertThat(reader.count).isLessThan(html.length() / 10);
+	}
+
+	private static class CountingReader extends Reader {
+
+		private final Reader delegate;
+		long count = 0;
+
+		CountingReader(Reader delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			int read = delegate.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+	@Test
+	@DisplayName("combines concurrent loads into one batch.")
+	void combinesLoads() throws ExecutionException, InterruptedException {
+		List<Set<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+		RequestCoalescer<Integer, String> requestCoalescer = new RequestCoalescer<>(3, Duration.ofMinutes(1), keys -> {
+			batches.add(keys);
+			return keys.stream().collect(Collectors.toMap(Function.identity(), String::valueOf));
+		});
+
+		List<Future<Optional<String>>> futures = new ArrayList<>();
+		try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 3; i++) {
+				int key = i;
+				futures.add(executorService.submit(() -> requestCoalescer.load(key)));
+			}
+		}
+
+		assertThat(batches).containsExactly(Set.of(0, 1, 2));
+		for (int i = 0; i < 3; i++) {
+			assertThat(futures.get(i).get()).contains(String.valueOf(i));
+		}
+	}
+
+	@Test
+	@DisplayName("loads incomplete batch after max wait.")
+	void loadsAfterMaxWait() {
+		RequestCoalescer<Integer, String> requestCoalescer = new RequestCoalescer<>(50,
+			Duration.ofMillis(10),
+			keys -> Map.of(1, "foo"));
+
+		assertThat(requestCoalescer.load(1)).contains("foo");
+		assertThat(requestCoalescer.load(2)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("rethrows exceptions of batch loader.")
+	void rethrowsExceptions() {
+		RequestCoalescer<Integer, String> requestCoalescer = new RequestCoalescer<>(1, Duration.ofMinutes(1), keys -> {
+			throw new IllegalStateException("failed");
+		});
+
+		assertThatThrownBy(() -> requestCoalescer.load(1)).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,96 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import dev.rilling.musicbrainzenricher.api.ScrapingCache.CacheEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScrapingCacheTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("returns stored entries.")
+	void returnsStoredEntries() {
+		ScrapingCache scrapingCache = createScrapingCache("1MB");
+		CacheEntry entry = new CacheEntry("<html></html>".getBytes(StandardCharsets.UTF_8),
+			"UTF-8",
+			"\"abc\"",
+			null,
+			Instant.ofEpochMilli(1000));
+
+		scrapingCache.put("https://example.com/foo", entry);
+
+		Optional<CacheEntry> actual = scrapingCache.get("https://example.com/foo");
+		assertThat(actual).isPresent();
+		assertThat(actual.get().body()).isEqualTo(entry.body());
+		assertThat(actual.get().charset()).isEqualTo("UTF-8");
+		assertThat(actual.get().etag()).isEqualTo("\"abc\"");
+		assertThat(actual.get().lastModified()).isNull();
+		assertThat(actual.get().fetchedAt()).isEqualTo(entry.fetchedAt());
+		assertThat(scrapingCache.get("https://example.com/bar")).isEmpty();
+	}
+
+	@Test
+	@DisplayName("uses host specific TTLs.")
+	void usesHostTtl() {
+		ScrapingCache scrapingCache = createScrapingCache("1MB");
+		CacheEntry entry = new CacheEntry(new byte[0], null, null, null, Instant.now().minus(Duration.ofDays(2)));
+
+		assertThat(scrapingCache.isFresh("https://example.com/foo", entry)).isFalse();
+		assertThat(scrapingCache.isFresh("https://bandcamp.com/foo", entry)).isTrue();
+		assertThat(scrapingCache.isFresh("https://artist.bandcamp.com/foo", entry)).isTrue();
+		assertThat(scrapingCache.isFresh("https://notbandcamp.com/foo", entry)).isFalse();
+	}
+
+	@Test
+	@DisplayName("evicts least recently used entries when full.")
+	void evictsEntries() throws IOException {
+		ScrapingCache scrapingCache = createScrapingCache("10B");
+		scrapingCache.put("https://example.com/1", createEntry(4));
+		scrapingCache.put("https://example.com/2", createEntry(4));
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.setLastModifiedTime(file, FileTime.from(Instant.EPOCH));
+			}
+		}
+		// Reading the first entry makes the second one the least recently used.
+		assertThat(scrapingCache.get("https://example.com/1")).isPresent();
+
+		scrapingCache.put("https://example.com/3", createEntry(4));
+
+		assertThat(scrapingCache.get("https://example.com/1")).isPresent();
+		assertThat(scrapingCache.get("https://example.com/2")).isEmpty();
+		assertThat(scrapingCache.get("https://example.com/3")).isPresent();
+	}
+
+	private CacheEntry createEntry(int size) {
+		return new CacheEntry(new byte[size], null, null, null, Instant.now());
+	}
+
+	private ScrapingCache createScrapingCache(String maxSize) {
+		MockEnvironment environment = new MockEnvironment()
+			.withProperty("musicbrainz-enricher.scraping.cache.enabled", "true")
+			.withProperty("musicbrainz-enricher.scraping.cache.directory", directory.toString())
+			.withProperty("musicbrainz-enricher.scraping.cache.max-size", maxSize)
+			.withProperty("musicbrainz-enricher.scraping.cache.ttl", "P1D")
+			.withProperty("musicbrainz-enricher.scraping.cache.host-ttl.[bandcamp.com]", "P3D");
+		environment.setConversionService(new ApplicationConversionService());
+		return new ScrapingCache(environment);
+	}
+}
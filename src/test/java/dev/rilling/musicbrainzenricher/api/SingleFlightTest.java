@@ -0,0 +1,133 @@
+package dev.rilling.musicbrainzenricher.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+	private static final int CALLERS = 32;
+
+	@Test
+	@DisplayName("executes concurrent calls for the same key once.")
+	void executesConcurrentCallsOnce() throws InterruptedException, ExecutionException {
+		SingleFlight<String, String> singleFlight = new SingleFlight<>();
+		AtomicInteger executions = new AtomicInteger(0);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<String>> futures = new ArrayList<>(CALLERS);
+		try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+			futures.add(executorService.submit(() -> singleFlight.execute("foo", () -> {
+				executions.incrementAndGet();
+				started.countDown();
+				awaitUninterruptibly(release);
+				return "bar";
+			})));
+			started.await();
+			for (int i = 1; i < CALLERS; i++) {
+				futures.add(executorService.submit(() -> singleFlight.execute("foo", () -> {
+					executions.incrementAndGet();
+					return "baz";
+				})));
+			}
+			awaitShared(singleFlight, CALLERS - 1);
+			release.countDown();
+		}
+
+		for (Future<String> future : futures) {
+			assertThat(future.get()).isEqualTo("bar");
+		}
+		assertThat(executions).hasValue(1);
+		assertThat(singleFlight.getExecutedCalls()).isEqualTo(1);
+		assertThat(singleFlight.getSharedCalls()).isEqualTo(CALLERS - 1);
+	}
+
+	@Test
+	@DisplayName("executes calls for different keys independently.")
+	void executesDifferentKeysIndependently() throws InterruptedException, ExecutionException {
+		SingleFlight<Integer, Integer> singleFlight = new SingleFlight<>();
+		CyclicBarrier barrier = new CyclicBarrier(CALLERS);
+
+		List<Future<Integer>> futures = new ArrayList<>(CALLERS);
+		try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < CALLERS; i++) {
+				int key = i;
+				// All calls are in flight at the same time, which would deadlock if they blocked each other.
+				futures.add(executorService.submit(() -> singleFlight.execute(key, () -> {
+					try {
+						barrier.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+						throw new IllegalStateException(e);
+					}
+					return key * 2;
+				})));
+			}
+		}
+
+		for (int i = 0; i < CALLERS; i++) {
+			assertThat(futures.get(i).get()).isEqualTo(i * 2);
+		}
+		assertThat(singleFlight.getSharedCalls()).isZero();
+	}
+
+	@Test
+	@DisplayName("shares exceptions with waiting callers.")
+	void sharesExceptions() throws InterruptedException {
+		SingleFlight<String, String> singleFlight = new SingleFlight<>();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first;
+		Future<String> second;
+		try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+			first = executorService.submit(() -> singleFlight.execute("foo", () -> {
+				started.countDown();
+				awaitUninterruptibly(release);
+				throw new IllegalStateException("failed");
+			}));
+			started.await();
+			second = executorService.submit(() -> singleFlight.execute("foo", () -> "bar"));
+			awaitShared(singleFlight, 1);
+			release.countDown();
+		}
+
+		assertThatThrownBy(first::get).hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(second::get).hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	@DisplayName("executes the call again once the previous one completed.")
+	void executesAgainAfterCompletion() {
+		SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+		assertThat(singleFlight.execute("foo", () -> "bar")).isEqualTo("bar");
+		assertThatThrownBy(() -> singleFlight.execute("foo", () -> {
+			throw new IllegalStateException("failed");
+		})).isInstanceOf(IllegalStateException.class);
+		assertThat(singleFlight.execute("foo", () -> "baz")).isEqualTo("baz");
+		assertThat(singleFlight.getExecutedCalls()).isEqualTo(3);
+	}
+
+	private static void awaitShared(SingleFlight<?, ?> singleFlight, long expected) throws InterruptedException {
+		while (singleFlight.getSharedCalls() < expected) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package dev.rilling.musicbrainzenricher.api.discogs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.rilling.musicbrainzenricher.api.LookupFailedException;
+import dev.rilling.musicbrainzenricher.api.discogs.DiscogsCacheRepository.CacheEntry;
+import io.github.bucket4j.BlockingBucket;
+import io.github.bucket4j.Bucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DiscogsQueryServiceTest {
+
+	@Mock
+	RestClient restClient;
+
+	@Mock
+	Bucket bucket;
+
+	@Mock
+	DiscogsCacheRepository discogsCacheRepository;
+
+	DiscogsQueryService discogsQueryService;
+
+	@BeforeEach
+	void setUp() {
+		MockEnvironment environment = new MockEnvironment()
+			.withProperty("musicbrainz-enricher.discogs-cache.ttl", "P1D")
+			.withProperty("musicbrainz-enricher.discogs-cache.negative-ttl", "P1D");
+		environment.setConversionService(new ApplicationConversionService());
+		discogsQueryService = new DiscogsQueryService(environment,
+			restClient,
+			bucket,
+			discogsCacheRepository,
+			new ObjectMapper());
+	}
+
+	@Test
+	@DisplayName("uses cached responses.")
+	void usesCachedResponse() {
+		when(discogsCacheRepository.find("master", "123")).thenReturn(Optional.of(new CacheEntry(
+			"{\"genres\":[\"Rock\"],\"styles\":null}",
+			Instant.now())));
+
+		assertThat(discogsQueryService.lookUpMaster("123")).contains(new DiscogsMaster(Set.of("Rock"), null));
+		verifyNoInteractions(bucket, restClient);
+	}
+
+	@Test
+	@DisplayName("uses cached not found responses.")
+	void usesCachedNotFoundResponse() {
+		when(discogsCacheRepository.find("release", "123")).thenReturn(Optional.of(new CacheEntry(null,
+			Instant.now())));
+
+		assertThat(discogsQueryService.lookUpRelease("123")).isEmpty();
+		verifyNoInteractions(bucket, restClient);
+	}
+
+	@Test
+	@DisplayName("throws if the lookup failed instead of treating it as not found.")
+	void throwsIfLookupFailed() {
+		when(bucket.asBlocking()).thenReturn(mock(BlockingBucket.class));
+		when(restClient.get()).thenThrow(new RestClientException("Connection reset"));
+
+		assertThatThrownBy(() -> discogsQueryService.lookUpRelease("123")).isInstanceOf(LookupFailedException.class);
+		verify(discogsCacheRepository, never()).save(any(), any(), any());
+	}
+}
@@ -0,0 +1,78 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.musicbrainz.model.entity.EntityWs2;
+import org.musicbrainz.model.entity.ReleaseGroupWs2;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncEditSubmitterTest {
+
+	@Mock
+	MusicbrainzEditService musicbrainzEditService;
+
+	@Test
+	@DisplayName("retries failed submissions.")
+	void retries() throws MusicbrainzException {
+		Set<EntityWs2> entities = Set.of(new ReleaseGroupWs2());
+		doThrow(new MusicbrainzException("foo", null)).doNothing().when(musicbrainzEditService).submitUserTags(entities);
+
+		CompletableFuture<Void> future;
+		try (AsyncEditSubmitter asyncEditSubmitter = new AsyncEditSubmitter(musicbrainzEditService, 1, 3, Duration.ZERO)) {
+			future = asyncEditSubmitter.submitUserTags(entities);
+		}
+
+		assertThat(future).isCompleted();
+		verify(musicbrainzEditService, times(2)).submitUserTags(entities);
+	}
+
+	@Test
+	@DisplayName("gives up after max attempts.")
+	void givesUp() throws MusicbrainzException {
+		Set<EntityWs2> entities = Set.of(new ReleaseGroupWs2());
+		doThrow(new MusicbrainzException("foo", null)).when(musicbrainzEditService).submitUserTags(entities);
+
+		CompletableFuture<Void> future;
+		try (AsyncEditSubmitter asyncEditSubmitter = new AsyncEditSubmitter(musicbrainzEditService, 1, 3, Duration.ZERO)) {
+			future = asyncEditSubmitter.submitUserTags(entities);
+		}
+
+		assertThat(future).isCompletedExceptionally();
+		verify(musicbrainzEditService, times(3)).submitUserTags(entities);
+	}
+
+	@Test
+	@DisplayName("keeps processing after unexpected errors.")
+	void continuesAfterUnexpectedErrors() throws MusicbrainzException {
+		Set<EntityWs2> failingEntities = Set.of(createReleaseGroup("1"));
+		Set<EntityWs2> entities = Set.of(createReleaseGroup("2"));
+		doThrow(new IllegalStateException("Oh no.")).when(musicbrainzEditService).submitUserTags(failingEntities);
+
+		CompletableFuture<Void> failingFuture;
+		CompletableFuture<Void> future;
+		try (AsyncEditSubmitter asyncEditSubmitter = new AsyncEditSubmitter(musicbrainzEditService, 1, 3, Duration.ZERO)) {
+			failingFuture = asyncEditSubmitter.submitUserTags(failingEntities);
+			future = asyncEditSubmitter.submitUserTags(entities);
+		}
+
+		assertThat(failingFuture).isCompletedExceptionally();
+		assertThat(future).isCompleted().isNotCompletedExceptionally();
+		verify(musicbrainzEditService, times(1)).submitUserTags(failingEntities);
+	}
+
+	private static ReleaseGroupWs2 createReleaseGroup(String id) {
+		ReleaseGroupWs2 releaseGroup = new ReleaseGroupWs2();
+		releaseGroup.setIdUri(id);
+		return releaseGroup;
+	}
+}
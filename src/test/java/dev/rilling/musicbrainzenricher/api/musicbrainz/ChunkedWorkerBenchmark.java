@@ -0,0 +1,51 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ChunkedWorker} against {@link SynchronizedChunkedWorker} with many threads adding items at the same
+ * time. Run {@link #main(String[])} to execute.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ChunkedWorkerBenchmark {
+
+	private static final int CHUNK_SIZE = 50;
+
+	private ChunkedWorker<Integer> chunkedWorker;
+	private SynchronizedChunkedWorker<Integer> synchronizedChunkedWorker;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		chunkedWorker = new ChunkedWorker<>(CHUNK_SIZE, CHUNK_SIZE * 4, Duration.ofHours(1), blackhole::consume);
+		synchronizedChunkedWorker = new SynchronizedChunkedWorker<>(CHUNK_SIZE, Duration.ofHours(1), blackhole::consume);
+	}
+
+	@Benchmark
+	public void lockFree() {
+		chunkedWorker.add(1);
+	}
+
+	@Benchmark
+	public void synchronizedBaseline() {
+		synchronizedChunkedWorker.add(1);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(ChunkedWorkerBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -3,9 +3,15 @@ package dev.rilling.musicbrainzenricher.api.musicbrainz;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -16,7 +22,7 @@ class ChunkedWorkerTest {
 	void worksOnChunk() {
 		Set<Integer> results = new HashSet<>();
 
-		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, results::addAll);
+		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, 5, Duration.ofHours(1), results::addAll);
 
 		chunkedWorker.add(1);
 		chunkedWorker.add(2);
@@ -32,7 +38,7 @@ class ChunkedWorkerTest {
 	void flushes() {
 		Set<Integer> results = new HashSet<>();
 
-		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, results::addAll);
+		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, 5, Duration.ofHours(1), results::addAll);
 
 		chunkedWorker.add(1);
 		chunkedWorker.add(2);
@@ -47,9 +53,45 @@ class ChunkedWorkerTest {
 	void skipsFlushing() {
 		AtomicBoolean called = new AtomicBoolean(false);
 
-		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, ignored -> called.set(true));
+		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, 5, Duration.ofHours(1), ignored -> called.set(true));
 
 		chunkedWorker.flush();
 		assertThat(called).isFalse();
 	}
+
+	@Test
+	@DisplayName("flushes items that lingered for too long.")
+	void flushesExpired() {
+		Set<Integer> results = new HashSet<>();
+		AtomicLong nanoTime = new AtomicLong(0);
+
+		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, 5, Duration.ofNanos(10), results::addAll, nanoTime::get);
+
+		chunkedWorker.add(1);
+		nanoTime.set(5);
+		chunkedWorker.add(2);
+		chunkedWorker.flushExpired();
+		assertThat(results).isEmpty();
+
+		nanoTime.set(10);
+		chunkedWorker.flushExpired();
+		assertThat(results).containsExactlyInAnyOrder(1, 2);
+	}
+
+	@Test
+	@DisplayName("processes each item exactly once with concurrent producers.")
+	void concurrentProducers() throws InterruptedException {
+		Queue<Integer> results = new ConcurrentLinkedQueue<>();
+
+		ChunkedWorker<Integer> chunkedWorker = new ChunkedWorker<>(5, 10, Duration.ofHours(1), results::addAll);
+
+		try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 1000; i++) {
+				int item = i;
+				executorService.execute(() -> chunkedWorker.add(item));
+			}
+		}
+		chunkedWorker.flush();
+		assertThat(results).hasSize(1000).doesNotHaveDuplicates();
+	}
 }
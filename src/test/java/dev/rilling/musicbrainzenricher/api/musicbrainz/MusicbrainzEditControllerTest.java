@@ -1,17 +1,20 @@
 package dev.rilling.musicbrainzenricher.api.musicbrainz;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.musicbrainz.DomainsWs2;
 import org.musicbrainz.model.entity.EntityWs2;
 import org.musicbrainz.model.entity.ReleaseGroupWs2;
 import org.musicbrainz.utils.MbUtils;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.util.Set;
 import java.util.UUID;
@@ -23,15 +26,30 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class MusicbrainzEditControllerTest {
 
-	@InjectMocks
-	MusicbrainzEditController musicbrainzEditController;
-
 	@Mock
 	MusicbrainzEditService musicbrainzEditService;
 
 	@Captor
 	ArgumentCaptor<Set<EntityWs2>> submissionCaptor;
 
+	MusicbrainzEditController musicbrainzEditController;
+
+	@BeforeEach
+	void setUp() {
+		MockEnvironment environment = new MockEnvironment();
+		environment.setConversionService(new ApplicationConversionService());
+		environment.setProperty("musicbrainz-enricher.tag-submission.max-linger", "PT1H");
+		environment.setProperty("musicbrainz-enricher.edit-submission.queue-capacity", "4");
+		environment.setProperty("musicbrainz-enricher.edit-submission.max-attempts", "1");
+		environment.setProperty("musicbrainz-enricher.edit-submission.initial-backoff", "PT0S");
+		musicbrainzEditController = new MusicbrainzEditController(environment, musicbrainzEditService);
+	}
+
+	@AfterEach
+	void tearDown() {
+		musicbrainzEditController.close();
+	}
+
 	@Test
 	@DisplayName("submission takes place only after TAG_SUBMISSION_SIZE items.")
 	void submissionAfterItemCount() throws MusicbrainzException {
@@ -47,7 +65,7 @@ class MusicbrainzEditControllerTest {
 		musicbrainzEditController.submitReleaseGroupUserTags(createReleaseGroup(), Set.of("foo"));
 
 		// Now we reached the limit, so one submit is expected.
-		verify(musicbrainzEditService).submitUserTags(submissionCaptor.capture());
+		verify(musicbrainzEditService, timeout(1000)).submitUserTags(submissionCaptor.capture());
 		assertThat(submissionCaptor.getValue()).hasSize(TAG_SUBMISSION_SIZE);
 	}
 
@@ -64,14 +82,14 @@ class MusicbrainzEditControllerTest {
 
 		musicbrainzEditController.flush();
 
-		verify(musicbrainzEditService).submitUserTags(submissionCaptor.capture());
+		verify(musicbrainzEditService, timeout(1000)).submitUserTags(submissionCaptor.capture());
 		assertThat(submissionCaptor.getValue()).hasSize(submissionCountThatDoesNotTriggerSubmit);
 	}
 
 	@Test
 	@DisplayName("submission do not take place if flush() is called if none exist.")
 	void submissionAfterFlushEmpty() throws MusicbrainzException {
-		musicbrainzEditController.flush();
+		musicbrainzEditController.close();
 
 		verify(musicbrainzEditService, never()).submitUserTags(anySet());
 	}
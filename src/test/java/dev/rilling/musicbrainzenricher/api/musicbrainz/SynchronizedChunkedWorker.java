@@ -0,0 +1,113 @@
+package dev.rilling.musicbrainzenricher.api.musicbrainz;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Previous implementation of {@link ChunkedWorker} that synchronizes on every addition, kept as baseline for
+ * {@link ChunkedWorkerBenchmark}.
+ * <p>
+ * Worker processing chunks of up to N items.
+ * If after addition at least N items are present, they are immediately processed as a chunk of N
+ * Chunks may have fewer than N items (but at least 1) if processing was forced using {@link #flush()}, or if the
+ * oldest item was waiting for longer than the maximum linger time when {@link #flushExpired()} is called.
+ *
+ * @param <TItem> Item type.
+ */
+@ThreadSafe
+class SynchronizedChunkedWorker<TItem> {
+	private final int chunkSize;
+	private final long maxLingerNanos;
+	private final LongSupplier nanoTimeSupplier;
+
+	private final Queue<PendingItem<TItem>> queue = new ConcurrentLinkedQueue<>();
+
+	private final Object workChunkingLock = new Object();
+
+	private final Consumer<Set<TItem>> workProcessor;
+
+	/**
+	 * @param chunkSize     Size of a chunk. Once reached, automatic flushing is done.
+	 * @param maxLinger     Maximum time an item should wait for its chunk to fill. Items waiting longer are flushed
+	 *                      by {@link #flushExpired()}.
+	 * @param workProcessor Function processing a chunk of items. The chunk of items will not be modified by this
+	 *                      worker after calling the processor.
+	 */
+	SynchronizedChunkedWorker(int chunkSize, Duration maxLinger, Consumer<Set<TItem>> workProcessor) {
+		this(chunkSize, maxLinger, workProcessor, System::nanoTime);
+	}
+
+	SynchronizedChunkedWorker(int chunkSize, Duration maxLinger, Consumer<Set<TItem>> workProcessor, LongSupplier nanoTimeSupplier) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1.");
+		}
+		this.chunkSize = chunkSize;
+		this.maxLingerNanos = maxLinger.toNanos();
+		this.workProcessor = workProcessor;
+		this.nanoTimeSupplier = nanoTimeSupplier;
+	}
+
+	/**
+	 * Adds an item. If chunk size is reached, this may lead to an invocation of {@link #workProcessor}.
+	 *
+	 * @param input Item to add.
+	 */
+	public void add(TItem input) {
+		queue.add(new PendingItem<>(input, nanoTimeSupplier.getAsLong()));
+		flush(false);
+	}
+
+	/**
+	 * Flushes incomplete chunks. If any items are present, this may lead to an invocation of
+	 * {@link #workProcessor}.
+	 */
+	public void flush() {
+		flush(true);
+	}
+
+	/**
+	 * Flushes chunks as long as the oldest item was added longer than the maximum linger time ago. Meant to be called
+	 * periodically, so that items are not kept indefinitely if the chunk size is not reached.
+	 */
+	public void flushExpired() {
+		PendingItem<TItem> oldest;
+		while ((oldest = queue.peek()) != null && nanoTimeSupplier.getAsLong() - oldest.addedNanos() >= maxLingerNanos) {
+			flush(true);
+		}
+	}
+
+	private void flush(boolean force) {
+		final Set<TItem> items;
+		synchronized (workChunkingLock) {
+			if (force) {
+				if (queue.isEmpty()) {
+					return;
+				}
+			} else {
+				if (queue.size() < chunkSize) {
+					return;
+				}
+			}
+
+			// Note that the queue may be larger than chunkSize at this point as the queue can still be modified.
+			// Due to that, we only take chunkSize items.
+			items = new HashSet<>(chunkSize);
+			while (queue.peek() != null && items.size() < chunkSize) {
+				items.add(queue.poll().item());
+			}
+		}
+
+		workProcessor.accept(Collections.unmodifiableSet(items));
+	}
+
+	private record PendingItem<TItem>(TItem item, long addedNanos) {
+	}
+}
@@ -0,0 +1,43 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChangedEntityWorkQueueTest {
+
+	@Mock
+	WorkQueueRepository workQueueRepository;
+
+	@Test
+	@DisplayName("iterates over all pages of changed entities.")
+	void iteratesPages() {
+		Instant since = Instant.parse("2024-01-01T00:00:00Z");
+		Instant until = Instant.parse("2024-01-02T00:00:00Z");
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+		WorkQueueEntry entry1 = new WorkQueueEntry(1, UUID.randomUUID());
+		WorkQueueEntry entry2 = new WorkQueueEntry(4, UUID.randomUUID());
+		WorkQueueEntry entry3 = new WorkQueueEntry(9, UUID.randomUUID());
+		when(workQueueRepository.queryChangedEntities(since, until, 0, 2)).thenReturn(List.of(entry1, entry2));
+		when(workQueueRepository.queryChangedEntities(since, until, 4, 2)).thenReturn(List.of(entry3));
+		when(workQueueRepository.queryChangedEntities(since, until, 9, 2)).thenReturn(List.of());
+
+		ChangedEntityWorkQueue workQueue = new ChangedEntityWorkQueue(workQueueRepository, since, until, 2, ignored -> {
+		});
+
+		List<UUID> actual = new ArrayList<>();
+		workQueue.forEachRemaining(actual::add);
+		assertThat(actual).containsExactly(entry1.mbid(), entry2.mbid(), entry3.mbid());
+	}
+}
@@ -0,0 +1,129 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeasingWorkQueueTest {
+
+	@Mock
+	WorkQueueRepository workQueueRepository;
+
+	@Mock
+	WorkLeaseService workLeaseService;
+
+	@BeforeEach
+	void setUp() {
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+	}
+
+	@Test
+	@DisplayName("iterates over all pages of all claimed chunks.")
+	void iteratesChunks() {
+		WorkChunk chunk1 = new WorkChunk(DataType.RELEASE, 0, 10);
+		WorkChunk chunk2 = new WorkChunk(DataType.RELEASE, 10, 20);
+		when(workLeaseService.claim(DataType.RELEASE)).thenReturn(Optional.of(chunk1))
+			.thenReturn(Optional.of(chunk2))
+			.thenReturn(Optional.empty());
+		WorkQueueEntry entry1 = new WorkQueueEntry(1, UUID.randomUUID());
+		WorkQueueEntry entry2 = new WorkQueueEntry(2, UUID.randomUUID());
+		WorkQueueEntry entry3 = new WorkQueueEntry(15, UUID.randomUUID());
+		when(workQueueRepository.queryWorkQueue(0, 10, 2)).thenReturn(List.of(entry1, entry2));
+		when(workQueueRepository.queryWorkQueue(2, 10, 2)).thenReturn(List.of());
+		when(workQueueRepository.queryWorkQueue(10, 20, 2)).thenReturn(List.of(entry3));
+
+		LeasingWorkQueue workQueue = new LeasingWorkQueue(workQueueRepository, workLeaseService, 2, () -> true, ignored -> {
+		});
+
+		List<UUID> actual = new ArrayList<>();
+		workQueue.forEachRemaining(actual::add);
+		assertThat(actual).containsExactly(entry1.mbid(), entry2.mbid(), entry3.mbid());
+		verify(workLeaseService).prepare(workQueueRepository);
+	}
+
+	@Test
+	@DisplayName("completes chunks once all of their entities were processed, regardless of the order.")
+	void completesChunks() {
+		WorkChunk chunk1 = new WorkChunk(DataType.RELEASE, 0, 10);
+		WorkChunk chunk2 = new WorkChunk(DataType.RELEASE, 10, 20);
+		when(workLeaseService.claim(DataType.RELEASE)).thenReturn(Optional.of(chunk1))
+			.thenReturn(Optional.of(chunk2));
+		WorkQueueEntry entry1 = new WorkQueueEntry(1, UUID.randomUUID());
+		WorkQueueEntry entry2 = new WorkQueueEntry(2, UUID.randomUUID());
+		when(workQueueRepository.queryWorkQueue(0, 10, 3)).thenReturn(List.of(entry1, entry2));
+		when(workQueueRepository.queryWorkQueue(10, 20, 3)).thenReturn(List.of(new WorkQueueEntry(11, UUID.randomUUID()),
+			new WorkQueueEntry(12, UUID.randomUUID()),
+			new WorkQueueEntry(13, UUID.randomUUID())));
+		BooleanSupplier historyFlusher = mock(BooleanSupplier.class);
+		when(historyFlusher.getAsBoolean()).thenReturn(true);
+
+		LeasingWorkQueue workQueue = new LeasingWorkQueue(workQueueRepository, workLeaseService, 3, historyFlusher, ignored -> {
+		});
+
+		workQueue.next();
+		workQueue.next();
+		UUID entry11 = workQueue.next();
+		workQueue.completed(entry2.mbid());
+		workQueue.completed(entry11);
+		workQueue.next();
+		verify(workLeaseService, never()).complete(any());
+
+		workQueue.completed(entry1.mbid());
+		workQueue.next();
+		verify(historyFlusher).getAsBoolean();
+		verify(workLeaseService).complete(chunk1);
+		verify(workLeaseService, never()).complete(chunk2);
+	}
+
+	@Test
+	@DisplayName("does not complete chunks if the history could not be persisted.")
+	void doesNotCompleteWithoutHistory() {
+		WorkChunk chunk1 = new WorkChunk(DataType.RELEASE, 0, 10);
+		when(workLeaseService.claim(DataType.RELEASE)).thenReturn(Optional.of(chunk1));
+		WorkQueueEntry entry1 = new WorkQueueEntry(1, UUID.randomUUID());
+		when(workQueueRepository.queryWorkQueue(0, 10, 2)).thenReturn(List.of(entry1));
+
+		LeasingWorkQueue workQueue = new LeasingWorkQueue(workQueueRepository, workLeaseService, 2, () -> false, ignored -> {
+		});
+
+		workQueue.next();
+		workQueue.completed(entry1.mbid());
+		workQueue.close();
+		verify(workLeaseService, never()).complete(any());
+		verify(workLeaseService).release(chunk1);
+	}
+
+	@Test
+	@DisplayName("completes finished chunks and releases the current chunk when closed.")
+	void releasesOnClose() {
+		WorkChunk chunk1 = new WorkChunk(DataType.RELEASE, 0, 10);
+		WorkChunk chunk2 = new WorkChunk(DataType.RELEASE, 10, 20);
+		when(workLeaseService.claim(DataType.RELEASE)).thenReturn(Optional.of(chunk1))
+			.thenReturn(Optional.of(chunk2));
+		when(workQueueRepository.queryWorkQueue(0, 10, 2)).thenReturn(List.of());
+		when(workQueueRepository.queryWorkQueue(10, 20, 2)).thenReturn(List.of(new WorkQueueEntry(11, UUID.randomUUID()),
+			new WorkQueueEntry(12, UUID.randomUUID())));
+
+		LeasingWorkQueue workQueue = new LeasingWorkQueue(workQueueRepository, workLeaseService, 2, () -> true, ignored -> {
+		});
+
+		workQueue.next();
+		workQueue.close();
+		verify(workLeaseService).complete(chunk1);
+		verify(workLeaseService, never()).complete(chunk2);
+		verify(workLeaseService).release(chunk2);
+	}
+}
@@ -0,0 +1,46 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StaleEntityWorkQueueTest {
+
+	@Mock
+	WorkQueueRepository workQueueRepository;
+
+	@Test
+	@DisplayName("iterates over all pages of stale entities, continuing after the last check time and row ID.")
+	void iteratesPages() {
+		Instant checkedBefore = Instant.parse("2024-01-01T00:00:00Z");
+		Instant checkedAt1 = Instant.parse("2023-01-01T00:00:00Z");
+		Instant checkedAt2 = Instant.parse("2023-06-01T00:00:00Z");
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+		StaleEntityEntry entry1 = new StaleEntityEntry(7, UUID.randomUUID(), checkedAt1);
+		StaleEntityEntry entry2 = new StaleEntityEntry(3, UUID.randomUUID(), checkedAt2);
+		StaleEntityEntry entry3 = new StaleEntityEntry(5, UUID.randomUUID(), checkedAt2);
+		when(workQueueRepository.queryStaleEntities(checkedBefore, Instant.EPOCH, 0, 2)).thenReturn(List.of(entry1,
+			entry2));
+		when(workQueueRepository.queryStaleEntities(checkedBefore, checkedAt2, 3, 2)).thenReturn(List.of(entry3));
+		when(workQueueRepository.queryStaleEntities(checkedBefore, checkedAt2, 5, 2)).thenReturn(List.of());
+
+		List<List<UUID>> pages = new ArrayList<>();
+		StaleEntityWorkQueue workQueue = new StaleEntityWorkQueue(workQueueRepository, checkedBefore, 2, pages::add);
+
+		List<UUID> actual = new ArrayList<>();
+		workQueue.forEachRemaining(actual::add);
+		assertThat(actual).containsExactly(entry1.mbid(), entry2.mbid(), entry3.mbid());
+		assertThat(pages).containsExactly(List.of(entry1.mbid(), entry2.mbid()), List.of(entry3.mbid()));
+	}
+}
@@ -0,0 +1,103 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WorkQueueCursorTest {
+
+	@Mock
+	WorkQueueRepository workQueueRepository;
+
+	@Mock
+	WorkQueueCursorRepository workQueueCursorRepository;
+
+	@BeforeEach
+	void setUp() {
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+	}
+
+	@Test
+	@DisplayName("iterates over all pages, continuing after the last score and row ID.")
+	void iteratesPages() {
+		when(workQueueCursorRepository.findPosition(DataType.RELEASE)).thenReturn(Optional.empty());
+		ScoredWorkQueueEntry entry1 = new ScoredWorkQueueEntry(1, UUID.randomUUID(), 20);
+		ScoredWorkQueueEntry entry2 = new ScoredWorkQueueEntry(7, UUID.randomUUID(), 15);
+		ScoredWorkQueueEntry entry3 = new ScoredWorkQueueEntry(2, UUID.randomUUID(), 15);
+		when(workQueueRepository.queryWorkQueue(WorkQueuePosition.START, 2)).thenReturn(List.of(entry1, entry2));
+		when(workQueueRepository.queryWorkQueue(new WorkQueuePosition(15, 7), 2)).thenReturn(List.of(entry3));
+		when(workQueueRepository.queryWorkQueue(new WorkQueuePosition(15, 2), 2)).thenReturn(List.of());
+
+		WorkQueueCursor workQueueCursor = new WorkQueueCursor(workQueueRepository, workQueueCursorRepository, 2);
+
+		List<UUID> actual = new ArrayList<>();
+		workQueueCursor.forEachRemaining(actual::add);
+		assertThat(actual).containsExactly(entry1.mbid(), entry2.mbid(), entry3.mbid());
+	}
+
+	@Test
+	@DisplayName("persists the position before the first entity that was not processed yet.")
+	void persistsPosition() {
+		when(workQueueCursorRepository.findPosition(DataType.RELEASE)).thenReturn(Optional.empty());
+		ScoredWorkQueueEntry entry1 = new ScoredWorkQueueEntry(3, UUID.randomUUID(), 10);
+		ScoredWorkQueueEntry entry2 = new ScoredWorkQueueEntry(7, UUID.randomUUID(), 5);
+		ScoredWorkQueueEntry entry3 = new ScoredWorkQueueEntry(4, UUID.randomUUID(), 5);
+		when(workQueueRepository.queryWorkQueue(WorkQueuePosition.START, 2)).thenReturn(List.of(entry1, entry2));
+		when(workQueueRepository.queryWorkQueue(new WorkQueuePosition(5, 7), 2)).thenReturn(List.of(entry3));
+
+		WorkQueueCursor workQueueCursor = new WorkQueueCursor(workQueueRepository, workQueueCursorRepository, 2);
+
+		workQueueCursor.next();
+		workQueueCursor.next();
+		workQueueCursor.completed(entry2.mbid());
+		workQueueCursor.next();
+		verify(workQueueCursorRepository, never()).savePosition(any(), any());
+
+		workQueueCursor.completed(entry1.mbid());
+		workQueueCursor.close();
+		verify(workQueueCursorRepository).savePosition(DataType.RELEASE, new WorkQueuePosition(5, 7));
+		verify(workQueueCursorRepository, never()).resetPosition(any());
+	}
+
+	@Test
+	@DisplayName("resets position once the end was reached and all entities were processed.")
+	void resetsPosition() {
+		when(workQueueCursorRepository.findPosition(DataType.RELEASE)).thenReturn(Optional.empty());
+		ScoredWorkQueueEntry entry1 = new ScoredWorkQueueEntry(3, UUID.randomUUID(), 10);
+		when(workQueueRepository.queryWorkQueue(WorkQueuePosition.START, 1)).thenReturn(List.of(entry1));
+		when(workQueueRepository.queryWorkQueue(new WorkQueuePosition(10, 3), 1)).thenReturn(List.of());
+
+		WorkQueueCursor workQueueCursor = new WorkQueueCursor(workQueueRepository, workQueueCursorRepository, 1);
+
+		workQueueCursor.next();
+		assertThat(workQueueCursor.hasNext()).isFalse();
+		workQueueCursor.completed(entry1.mbid());
+		workQueueCursor.close();
+		verify(workQueueCursorRepository).resetPosition(DataType.RELEASE);
+	}
+
+	@Test
+	@DisplayName("resumes from persisted position.")
+	void resumes() {
+		WorkQueuePosition position = new WorkQueuePosition(12.5, 42);
+		when(workQueueCursorRepository.findPosition(DataType.RELEASE)).thenReturn(Optional.of(position));
+		when(workQueueRepository.queryWorkQueue(position, 2)).thenReturn(List.of());
+
+		WorkQueueCursor workQueueCursor = new WorkQueueCursor(workQueueRepository, workQueueCursorRepository, 2);
+
+		assertThat(workQueueCursor.hasNext()).isFalse();
+		verify(workQueueRepository).queryWorkQueue(position, 2);
+	}
+}
@@ -0,0 +1,80 @@
+package dev.rilling.musicbrainzenricher.core;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WorkQueueMaintenanceServiceTest {
+
+	@Mock
+	WorkQueueMaintenanceRepository workQueueMaintenanceRepository;
+
+	@Mock
+	WorkQueueRepository workQueueRepository;
+
+	@Test
+	@DisplayName("adds changes since the last maintained replication.")
+	void addsChanges() {
+		Instant maintainedDate = Instant.parse("2024-01-01T00:00:00Z");
+		ReplicationState currentState = new ReplicationState(12, Instant.parse("2024-01-02T00:00:00Z"));
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+		when(workQueueMaintenanceRepository.findCurrentReplicationState()).thenReturn(Optional.of(currentState));
+		when(workQueueMaintenanceRepository.findMaintainedReplicationState(DataType.RELEASE)).thenReturn(Optional.of(
+			new ReplicationState(10, maintainedDate)));
+
+		createService("incremental").maintain(workQueueRepository);
+
+		verify(workQueueRepository).addChangedEntities(maintainedDate.minus(Duration.ofHours(1)));
+		verify(workQueueRepository, never()).refresh();
+		verify(workQueueMaintenanceRepository).saveMaintainedReplicationState(DataType.RELEASE, currentState);
+	}
+
+	@Test
+	@DisplayName("refreshes if never maintained before.")
+	void refreshesInitially() {
+		ReplicationState currentState = new ReplicationState(12, Instant.parse("2024-01-02T00:00:00Z"));
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+		when(workQueueMaintenanceRepository.findCurrentReplicationState()).thenReturn(Optional.of(currentState));
+		when(workQueueMaintenanceRepository.findMaintainedReplicationState(DataType.RELEASE)).thenReturn(Optional.empty());
+
+		createService("incremental").maintain(workQueueRepository);
+
+		verify(workQueueRepository).refresh();
+		verify(workQueueMaintenanceRepository).saveMaintainedReplicationState(DataType.RELEASE, currentState);
+	}
+
+	@Test
+	@DisplayName("does nothing if already up to date.")
+	void skipsIfUpToDate() {
+		ReplicationState currentState = new ReplicationState(12, Instant.parse("2024-01-02T00:00:00Z"));
+		when(workQueueRepository.getDataType()).thenReturn(DataType.RELEASE);
+		when(workQueueMaintenanceRepository.findCurrentReplicationState()).thenReturn(Optional.of(currentState));
+		when(workQueueMaintenanceRepository.findMaintainedReplicationState(DataType.RELEASE)).thenReturn(Optional.of(
+			currentState));
+
+		createService("refresh").maintain(workQueueRepository);
+
+		verify(workQueueRepository, never()).refresh();
+		verify(workQueueRepository, never()).addChangedEntities(any());
+		verify(workQueueMaintenanceRepository, never()).saveMaintainedReplicationState(any(), any());
+	}
+
+	private WorkQueueMaintenanceService createService(String maintenanceMode) {
+		MockEnvironment environment = new MockEnvironment();
+		environment.setConversionService(new ApplicationConversionService());
+		environment.setProperty("musicbrainz-enricher.database.work-queue-maintenance", maintenanceMode);
+		return new WorkQueueMaintenanceService(environment, workQueueMaintenanceRepository);
+	}
+}
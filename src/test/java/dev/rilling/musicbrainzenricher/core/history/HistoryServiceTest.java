@@ -0,0 +1,119 @@
+package dev.rilling.musicbrainzenricher.core.history;
+
+import dev.rilling.musicbrainzenricher.core.DataType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryServiceTest {
+
+	static final int FLUSH_SIZE = 3;
+
+	@Mock
+	HistoryEntryRepository historyEntryRepository;
+
+	@Captor
+	ArgumentCaptor<Collection<HistoryEntry>> entriesCaptor;
+
+	HistoryService historyService;
+
+	@BeforeEach
+	void setUp() {
+		MockEnvironment environment = new MockEnvironment()
+			.withProperty("musicbrainz-enricher.dry-run", "false")
+			.withProperty("musicbrainz-enricher.history.flush-size", String.valueOf(FLUSH_SIZE));
+		historyService = new HistoryService(environment, historyEntryRepository);
+	}
+
+	@Test
+	@DisplayName("persists entries only once flush size is reached.")
+	void persistsAfterFlushSize() {
+		historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+		historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+		verify(historyEntryRepository, never()).persistAll(anyCollection());
+
+		historyService.markAsChecked(DataType.RELEASE_GROUP, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+
+		verify(historyEntryRepository).persistAll(entriesCaptor.capture());
+		assertThat(entriesCaptor.getValue()).hasSize(FLUSH_SIZE);
+	}
+
+	@Test
+	@DisplayName("persists pending entries on flush.")
+	void persistsOnFlush() {
+		historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+
+		historyService.flush();
+
+		verify(historyEntryRepository).persistAll(entriesCaptor.capture());
+		assertThat(entriesCaptor.getValue()).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("keeps entries for the next flush if persisting fails.")
+	void keepsEntriesOnFailure() {
+		doThrow(new DataAccessResourceFailureException("down")).doNothing()
+			.when(historyEntryRepository)
+			.persistAll(anyCollection());
+
+		historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+		historyService.flush();
+		historyService.flush();
+
+		verify(historyEntryRepository, times(2)).persistAll(entriesCaptor.capture());
+		assertThat(entriesCaptor.getAllValues().getLast()).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("only retries periodically after persisting failed.")
+	void retriesPeriodicallyAfterFailure() {
+		doThrow(new DataAccessResourceFailureException("down")).doNothing()
+			.when(historyEntryRepository)
+			.persistAll(anyCollection());
+		for (int i = 0; i < FLUSH_SIZE * 2; i++) {
+			historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+		}
+		assertThat(historyService.persistPending()).isFalse();
+		verify(historyEntryRepository, times(1)).persistAll(anyCollection());
+
+		historyService.flushPeriodically();
+
+		verify(historyEntryRepository, times(2)).persistAll(entriesCaptor.capture());
+		assertThat(entriesCaptor.getAllValues().getLast()).hasSize(FLUSH_SIZE * 2);
+	}
+
+	@Test
+	@DisplayName("drops the oldest entries if too many are pending.")
+	void dropsOldestEntries() {
+		doThrow(new DataAccessResourceFailureException("down")).when(historyEntryRepository)
+			.persistAll(anyCollection());
+		UUID oldestMbid = UUID.randomUUID();
+		historyService.markAsChecked(DataType.RELEASE, oldestMbid, EnrichmentOutcome.UNCHANGED);
+		for (int i = 0; i < FLUSH_SIZE * 100; i++) {
+			historyService.markAsChecked(DataType.RELEASE, UUID.randomUUID(), EnrichmentOutcome.UNCHANGED);
+		}
+		historyService.flushPeriodically();
+		doNothing().when(historyEntryRepository).persistAll(anyCollection());
+
+		historyService.flushPeriodically();
+
+		verify(historyEntryRepository, times(3)).persistAll(entriesCaptor.capture());
+		assertThat(entriesCaptor.getAllValues().getLast()).hasSize(FLUSH_SIZE * 100)
+			.noneMatch(entry -> entry.mbid().equals(oldestMbid));
+	}
+}
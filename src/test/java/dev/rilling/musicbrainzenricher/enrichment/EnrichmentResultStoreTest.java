@@ -0,0 +1,138 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import dev.rilling.musicbrainzenricher.enrichment.EnrichmentResultRepository.EnrichmentResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.musicbrainz.model.RelationWs2;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnrichmentResultStoreTest {
+
+	private static final GenreLookup FOUND = GenreLookup.of(Set.of("Rock"), Set.of("rock"));
+
+	@Mock
+	EnrichmentResultRepository enrichmentResultRepository;
+
+	@Mock
+	GenreEnricher genreEnricher;
+
+	EnrichmentResultStore enrichmentResultStore;
+
+	@BeforeEach
+	void setUp() {
+		enrichmentResultStore = new EnrichmentResultStore(enrichmentResultRepository,
+			Duration.ofDays(30),
+			Duration.ofDays(7),
+			Duration.ofHours(6),
+			Map.of("discogs.com", Duration.ofDays(90)));
+	}
+
+	@Test
+	@DisplayName("uses fresh stored results.")
+	void usesFreshResults() {
+		RelationWs2 relation = createRelation("https://example.com/1");
+		when(enrichmentResultRepository.find(any(), eq("example.com/1"))).thenReturn(Optional.of(new EnrichmentResult(
+			FOUND,
+			Instant.now().minus(Duration.ofDays(29)))));
+
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, relation)).isEqualTo(FOUND);
+
+		verify(genreEnricher, never()).fetchGenres(any());
+		assertThat(enrichmentResultStore.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("fetches and stores results that are missing or stale.")
+	void fetchesStaleResults() {
+		RelationWs2 relation1 = createRelation("https://example.com/1");
+		RelationWs2 relation2 = createRelation("https://example.com/2");
+		when(enrichmentResultRepository.find(any(), eq("example.com/1"))).thenReturn(Optional.empty());
+		when(enrichmentResultRepository.find(any(), eq("example.com/2"))).thenReturn(Optional.of(new EnrichmentResult(
+			FOUND,
+			Instant.now().minus(Duration.ofDays(31)))));
+		when(genreEnricher.fetchGenres(any())).thenReturn(FOUND);
+
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, relation1)).isEqualTo(FOUND);
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, relation2)).isEqualTo(FOUND);
+
+		verify(enrichmentResultRepository).save(anyString(), eq("example.com/1"), eq(FOUND));
+		verify(enrichmentResultRepository).save(anyString(), eq("example.com/2"), eq(FOUND));
+		assertThat(enrichmentResultStore.getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("keys results by normalized URL.")
+	void normalizesUrls() {
+		when(enrichmentResultRepository.find(any(), eq("example.com/1"))).thenReturn(Optional.of(new EnrichmentResult(FOUND,
+			Instant.now())));
+
+		assertThat(enrichmentResultStore.containsFresh(genreEnricher, createRelation("http://Example.com/1/"))).isTrue();
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, createRelation("https://example.com/1"))).isEqualTo(
+			FOUND);
+	}
+
+	@Test
+	@DisplayName("uses the TTL of the host.")
+	void usesHostTtl() {
+		RelationWs2 relation = createRelation("https://www.discogs.com/master/1");
+		when(enrichmentResultRepository.find(any(), any())).thenReturn(Optional.of(new EnrichmentResult(FOUND,
+			Instant.now().minus(Duration.ofDays(60)))));
+
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, relation)).isEqualTo(FOUND);
+
+		verify(genreEnricher, never()).fetchGenres(any());
+	}
+
+	@Test
+	@DisplayName("uses separate TTLs for empty and failed results.")
+	void usesNegativeTtls() {
+		RelationWs2 emptyRelation = createRelation("https://example.com/empty");
+		RelationWs2 failedRelation = createRelation("https://example.com/failed");
+		when(enrichmentResultRepository.find(any(), eq("example.com/empty"))).thenReturn(Optional.of(new EnrichmentResult(
+			GenreLookup.empty(),
+			Instant.now().minus(Duration.ofDays(6)))));
+		when(enrichmentResultRepository.find(any(), eq("example.com/failed"))).thenReturn(Optional.of(new EnrichmentResult(
+			GenreLookup.failed(),
+			Instant.now().minus(Duration.ofDays(1)))));
+		when(genreEnricher.fetchGenres(failedRelation)).thenReturn(FOUND);
+
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, emptyRelation)).isEqualTo(GenreLookup.empty());
+		assertThat(enrichmentResultStore.fetchGenres(genreEnricher, failedRelation)).isEqualTo(FOUND);
+
+		verify(genreEnricher, never()).fetchGenres(emptyRelation);
+	}
+
+	@Test
+	@DisplayName("stores failed lookups.")
+	void storesFailures() {
+		RelationWs2 relation = createRelation("https://example.com/1");
+		when(enrichmentResultRepository.find(any(), any())).thenReturn(Optional.empty());
+		when(genreEnricher.fetchGenres(any())).thenThrow(new IllegalStateException("Oh no."));
+
+		assertThatThrownBy(() -> enrichmentResultStore.fetchGenres(genreEnricher, relation)).isInstanceOf(
+			IllegalStateException.class);
+
+		verify(enrichmentResultRepository).save(anyString(), eq("example.com/1"), eq(GenreLookup.failed()));
+	}
+
+	private static RelationWs2 createRelation(String url) {
+		RelationWs2 relation = new RelationWs2();
+		relation.setTargetId(url);
+		return relation;
+	}
+}
@@ -0,0 +1,20 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenreLookupKeyTest {
+
+	@Test
+	@DisplayName("normalizes URLs.")
+	void normalizesUrls() {
+		assertThat(GenreLookupKey.normalizeUrl(" https://Foo.Bandcamp.com/album/bar/ ")).isEqualTo(
+			"foo.bandcamp.com/album/bar");
+		assertThat(GenreLookupKey.normalizeUrl("http://www.wikidata.org/wiki/Q1#sitelinks")).isEqualTo(
+			"www.wikidata.org/wiki/Q1");
+		assertThat(GenreLookupKey.normalizeUrl("https://example.com:8080/a?b=c")).isEqualTo("example.com:8080/a?b=c");
+		assertThat(GenreLookupKey.normalizeUrl("not a url")).isEqualTo("not a url");
+	}
+}
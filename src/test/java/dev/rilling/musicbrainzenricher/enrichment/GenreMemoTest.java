@@ -0,0 +1,106 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.musicbrainz.model.RelationWs2;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GenreMemoTest {
+
+	@Mock
+	GenreEnricher genreEnricher;
+
+	@Mock
+	OtherGenreEnricher otherGenreEnricher;
+
+	@Test
+	@DisplayName("fetches genres of the same URL once.")
+	void fetchesOnce() {
+		when(genreEnricher.fetchGenres(any())).thenReturn(createLookup("rock"));
+		GenreMemo genreMemo = new GenreMemo(10);
+
+		assertThat(fetchGenres(genreMemo, genreEnricher, createRelation("https://www.discogs.com/master/1"))).containsExactly(
+			"rock");
+		assertThat(fetchGenres(genreMemo, genreEnricher, createRelation("http://WWW.discogs.com/master/1/"))).containsExactly(
+			"rock");
+
+		verify(genreEnricher, times(1)).fetchGenres(any());
+		assertThat(genreMemo.getHits()).isEqualTo(1);
+		assertThat(genreMemo.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("keeps results of different enrichers apart.")
+	void separatesEnrichers() {
+		when(genreEnricher.fetchGenres(any())).thenReturn(createLookup("rock"));
+		when(otherGenreEnricher.fetchGenres(any())).thenReturn(createLookup("jazz"));
+		GenreMemo genreMemo = new GenreMemo(10);
+		RelationWs2 relation = createRelation("https://www.discogs.com/master/1");
+
+		assertThat(fetchGenres(genreMemo, genreEnricher, relation)).containsExactly("rock");
+		assertThat(fetchGenres(genreMemo, otherGenreEnricher, relation)).containsExactly("jazz");
+	}
+
+	@Test
+	@DisplayName("removes least recently used entries.")
+	void removesLeastRecentlyUsed() {
+		when(genreEnricher.fetchGenres(any())).thenReturn(createLookup("rock"));
+		GenreMemo genreMemo = new GenreMemo(2);
+		RelationWs2 relation1 = createRelation("https://example.com/1");
+		RelationWs2 relation2 = createRelation("https://example.com/2");
+		RelationWs2 relation3 = createRelation("https://example.com/3");
+
+		fetchGenres(genreMemo, genreEnricher, relation1);
+		fetchGenres(genreMemo, genreEnricher, relation2);
+		fetchGenres(genreMemo, genreEnricher, relation1);
+		fetchGenres(genreMemo, genreEnricher, relation3);
+		fetchGenres(genreMemo, genreEnricher, relation1);
+		fetchGenres(genreMemo, genreEnricher, relation2);
+
+		verify(genreEnricher, times(1)).fetchGenres(relation1);
+		verify(genreEnricher, times(2)).fetchGenres(relation2);
+	}
+
+	@Test
+	@DisplayName("does not remember failed lookups.")
+	void doesNotRememberFailures() {
+		when(genreEnricher.fetchGenres(any())).thenThrow(new IllegalStateException("Oh no."))
+			.thenReturn(GenreLookup.failed())
+			.thenReturn(GenreLookup.empty());
+		GenreMemo genreMemo = new GenreMemo(10);
+		RelationWs2 relation = createRelation("https://example.com/1");
+
+		assertThatThrownBy(() -> fetchGenres(genreMemo, genreEnricher, relation)).isInstanceOf(IllegalStateException.class);
+		assertThat(fetchGenres(genreMemo, genreEnricher, relation)).isEmpty();
+		assertThat(fetchGenres(genreMemo, genreEnricher, relation)).isEmpty();
+		assertThat(fetchGenres(genreMemo, genreEnricher, relation)).isEmpty();
+		verify(genreEnricher, times(3)).fetchGenres(relation);
+	}
+
+	private static Set<String> fetchGenres(GenreMemo genreMemo, GenreEnricher genreEnricher, RelationWs2 relation) {
+		return genreMemo.fetchGenres(genreEnricher, relation, () -> genreEnricher.fetchGenres(relation)).genres();
+	}
+
+	private static GenreLookup createLookup(String genre) {
+		return GenreLookup.of(Set.of(genre), Set.of(genre));
+	}
+
+	private static RelationWs2 createRelation(String url) {
+		RelationWs2 relation = new RelationWs2();
+		relation.setTargetId(url);
+		return relation;
+	}
+
+	interface OtherGenreEnricher extends GenreEnricher {
+	}
+}
@@ -0,0 +1,75 @@
+package dev.rilling.musicbrainzenricher.enrichment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.musicbrainz.model.RelationWs2;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestBudgetTest {
+
+	@Test
+	@DisplayName("limits requests per host.")
+	void limitsRequestsPerHost() {
+		RequestBudget requestBudget = new RequestBudget(Map.of("discogs.com", 2L), 0);
+
+		assertThat(requestBudget.tryAcquire(createRelation("https://www.discogs.com/release/1"))).isTrue();
+		assertThat(requestBudget.tryAcquire(createRelation("https://discogs.com/release/2"))).isTrue();
+		assertThat(requestBudget.tryAcquire(createRelation("https://www.discogs.com/release/3"))).isFalse();
+	}
+
+	@Test
+	@DisplayName("uses the default budget for other hosts.")
+	void usesDefaultBudgetForOtherHosts() {
+		RequestBudget requestBudget = new RequestBudget(Map.of("discogs.com", 0L), 1);
+
+		assertThat(requestBudget.tryAcquire(createRelation("https://www.discogs.com/release/1"))).isFalse();
+		assertThat(requestBudget.tryAcquire(createRelation("https://foo.bandcamp.com/album/bar"))).isTrue();
+		assertThat(requestBudget.tryAcquire(createRelation("https://open.spotify.com/album/baz"))).isFalse();
+	}
+
+	@Test
+	@DisplayName("takes requests for all relations or none.")
+	void acquiresAllOrNone() {
+		RequestBudget requestBudget = new RequestBudget(Map.of("discogs.com", 1L), 1);
+
+		assertThat(requestBudget.tryAcquireAll(List.of(createRelation("https://foo.bandcamp.com/album/bar"),
+			createRelation("https://www.discogs.com/release/1"),
+			createRelation("https://www.discogs.com/release/2")))).isFalse();
+		assertThat(requestBudget.tryAcquireAll(List.of(createRelation("https://foo.bandcamp.com/album/bar"),
+			createRelation("https://www.discogs.com/release/1")))).isTrue();
+		assertThat(requestBudget.isExhausted()).isTrue();
+	}
+
+	@Test
+	@DisplayName("is exhausted once every budget is used up.")
+	void isExhaustedOnceEveryBudgetIsUsedUp() {
+		RequestBudget requestBudget = new RequestBudget(Map.of("discogs.com", 1L), 1);
+
+		requestBudget.tryAcquire(createRelation("https://www.discogs.com/release/1"));
+		assertThat(requestBudget.isExhausted()).isFalse();
+
+		requestBudget.tryAcquire(createRelation("https://foo.bandcamp.com/album/bar"));
+		assertThat(requestBudget.isExhausted()).isTrue();
+	}
+
+	@Test
+	@DisplayName("never runs out if unlimited.")
+	void neverRunsOutIfUnlimited() {
+		RequestBudget requestBudget = RequestBudget.unlimited();
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(requestBudget.tryAcquire(createRelation("https://www.discogs.com/release/" + i))).isTrue();
+		}
+		assertThat(requestBudget.isExhausted()).isFalse();
+	}
+
+	private static RelationWs2 createRelation(String url) {
+		RelationWs2 relation = new RelationWs2();
+		relation.setTargetId(url);
+		return relation;
+	}
+}